@@ -1,9 +1,5 @@
 package cisgvsu.biotowerdefense;
 
-import android.content.res.Resources;
-import android.util.Log;
-import android.util.Range;
-
 /**
  * This class models an antibiotic "tower" that shoots
  * a dosage of a certain type of antibiotic at the different
@@ -13,9 +9,6 @@ import android.util.Range;
  */
 
 public class AntibioticTower {
-    int screenWidth = Resources.getSystem().getDisplayMetrics().widthPixels;
-    int fifthWidth = screenWidth / 5;
-
     /** Type of antibiotic that this tower shoots. */
     private AntibioticType type;
 
@@ -25,6 +18,9 @@ public class AntibioticTower {
     /** Cost to buy this type of tower. */
     private int cost;
 
+    /** Time between shots, in milliseconds. */
+    private long cooldown;
+
     /** Location of tower in game, 0 - 4 to begin with */
     private int location;
     private int minRange;
@@ -34,27 +30,19 @@ public class AntibioticTower {
     private boolean shooting;
     private boolean addPill;
 
-    /**
-     * Create a default penicillin tower at the first location.
-     */
-    public AntibioticTower() {
-        this.type = AntibioticType.penicillin;
-        this.power = AntibioticType.getPower(type);
-        this.cost = AntibioticType.getCost(type);
-        this.location = 0;
-        this.maxRange = screenWidth;
-        this.minRange = screenWidth - fifthWidth;
-    }
-
     /**
      * Create a new tower of the specified type and at the given location.
      * @param type Type of antibiotic for this tower to shoot.
      * @param location Location of tower in game.
+     * @param screenWidth Width of the screen the path is laid out on, which
+     *                    the towers split between them.
      */
-    public AntibioticTower(AntibioticType type, int location) {
+    public AntibioticTower(AntibioticType type, int location, int screenWidth) {
+        int fifthWidth = screenWidth / 5;
         this.type = type;
         this.power = AntibioticType.getPower(type);
         this.cost = AntibioticType.getCost(type);
+        this.cooldown = AntibioticType.getCooldown(type);
         this.location = location;
 
         //set the reach of the tower
@@ -62,27 +50,22 @@ public class AntibioticTower {
             case 0:
                 this.maxRange = screenWidth;
                 this.minRange = screenWidth - fifthWidth;
-                Log.d("*************", "Tower 0, max = " + maxRange + " min = " + minRange);
                 break;
             case 1:
                 this.maxRange = screenWidth - fifthWidth;
                 this.minRange = screenWidth - 2*fifthWidth;
-                Log.d("*************", "Tower 1, max = " + maxRange + " min = " + minRange);
                 break;
             case 2:
                 this.maxRange = screenWidth - 2*fifthWidth;
                 this.minRange = screenWidth - 3*fifthWidth;
-                Log.d("*************", "Tower 2, max = " + maxRange + " min = " + minRange);
                 break;
             case 3:
                 this.maxRange = screenWidth - 3*fifthWidth;
                 this.minRange = screenWidth - 4*fifthWidth;
-                Log.d("*************", "Tower 3, max = " + maxRange + " min = " + minRange);
                 break;
             case 4:
                 this.maxRange = screenWidth - 4*fifthWidth;
                 this.minRange = 0;
-                Log.d("*************", "Tower 4, max = " + maxRange + " min = " + minRange);
                 break;
 
         }
@@ -144,6 +127,22 @@ public class AntibioticTower {
         this.cost = cost;
     }
 
+    /**
+     * Get how long the tower waits between shots.
+     * @return Cooldown in milliseconds.
+     */
+    public long getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * Set how long the tower waits between shots.
+     * @param cooldown New cooldown in milliseconds.
+     */
+    public void setCooldown(long cooldown) {
+        this.cooldown = cooldown;
+    }
+
     /**
      * Get whether or not the target is in range of the tower
      * @param x the x-coordinate of the target
@@ -3,27 +3,36 @@ package cisgvsu.biotowerdefense;
 /**
  * Created by Ella on 8/31/2017.
  * The different antibiotic types that are available in the game.
+ * Their stats come from antibiotics.csv, read once into arrays indexed by
+ * ordinal, so they can be tuned without touching the code.
  */
 
 public enum AntibioticType {
     penicillin, vancomycin, linezolid;
 
+    /** The stats table. */
+    private static final TypeTable TABLE = TypeTable.load("antibiotics.csv", values());
+
+    private static final String[] LABEL = TABLE.strings("label");
+    private static final int[] POWER = TABLE.ints("power");
+    private static final int[] COST = TABLE.ints("cost");
+    private static final int[] FIRE_RATE = TABLE.ints("fire_rate");
+    private static final int[] EFFECT = effects(TABLE.strings("effect"));
+    private static final int[] EFFECT_STRENGTH = TABLE.ints("effect_strength");
+    private static final long[] EFFECT_DURATION = TABLE.longs("effect_duration");
+    private static final double[] RESISTANCE_CHANCE = TABLE.doubles("resistance_chance");
+
+    /** Resource IDs, looked up the first time they're needed. */
+    private static int[] images;
+    private static int[] descriptions;
+
     /**
      * Get the power of one dosage of this antibiotic.
      * @param type Type of antibiotic we're checking
      * @return int representing the dosage power
      */
     public static int getPower(AntibioticType type) {
-        switch (type) {
-            case penicillin:
-                return 1;
-            case vancomycin:
-                return 2;
-            case linezolid:
-                return 3;
-            default:
-                return 0;
-        }
+        return POWER[type.ordinal()];
     }
 
     /**
@@ -33,16 +42,64 @@ public enum AntibioticType {
      * from money in game)
      */
     public static int getCost(AntibioticType type) {
-        switch (type) {
-            case penicillin:
-                return 15;
-            case vancomycin:
-                return 25;
-            case linezolid:
-                return 35;
-            default:
-                return 0;
-        }
+        return COST[type.ordinal()];
+    }
+
+    /**
+     * Get how fast a tower of this antibiotic fires.
+     * @param type Type of antibiotic we're checking
+     * @return Shots per minute
+     */
+    public static int getFireRate(AntibioticType type) {
+        return FIRE_RATE[type.ordinal()];
+    }
+
+    /**
+     * Get how long a tower of this antibiotic waits between shots.
+     * @param type Type of antibiotic we're checking
+     * @return Cooldown in milliseconds
+     */
+    public static long getCooldown(AntibioticType type) {
+        return 60000 / getFireRate(type);
+    }
+
+    /**
+     * Get the status effect a dose of this antibiotic leaves on a bacteria
+     * that survives it. Linezolid is bacteriostatic, so it slows bacteria
+     * down instead of just killing them.
+     * @param type Type of antibiotic we're checking
+     * @return One of the kinds in {@link StatusEffects}, or -1 for none
+     */
+    public static int getEffect(AntibioticType type) {
+        return EFFECT[type.ordinal()];
+    }
+
+    /**
+     * Get how strong this antibiotic's status effect is.
+     * @param type Type of antibiotic we're checking
+     * @return Percent slower for a slow, damage per hit for damage over time
+     */
+    public static int getEffectStrength(AntibioticType type) {
+        return EFFECT_STRENGTH[type.ordinal()];
+    }
+
+    /**
+     * Get how long this antibiotic's status effect lasts.
+     * @param type Type of antibiotic we're checking
+     * @return Duration in milliseconds
+     */
+    public static long getEffectDuration(AntibioticType type) {
+        return EFFECT_DURATION[type.ordinal()];
+    }
+
+    /**
+     * Get the chance that one exposure to this antibiotic produces a resistant
+     * bacteria.
+     * @param type Type of antibiotic we're checking
+     * @return Chance between 0 and 1
+     */
+    public static double getResistanceChance(AntibioticType type) {
+        return RESISTANCE_CHANCE[type.ordinal()];
     }
 
     /**
@@ -51,16 +108,7 @@ public enum AntibioticType {
      * @return
      */
     public static String toString(AntibioticType type) {
-        switch (type) {
-            case penicillin:
-                return "Penicillin";
-            case vancomycin:
-                return "Vancomycin";
-            case linezolid:
-                return "Linezolid";
-            default:
-                return null;
-        }
+        return LABEL[type.ordinal()];
     }
 
     /**
@@ -69,15 +117,8 @@ public enum AntibioticType {
      * @return
      */
     public static AntibioticType stringToEnum(String str) {
-        if (str.equalsIgnoreCase("penicillin")) {
-            return penicillin;
-        } else if (str.equalsIgnoreCase("vancomycin")) {
-            return vancomycin;
-        } else if (str.equalsIgnoreCase("linezolid")) {
-            return linezolid;
-        } else {
-            return null;
-        }
+        int i = TABLE.indexOf(str);
+        return i < 0 ? null : values()[i];
     }
 
     /**
@@ -86,16 +127,10 @@ public enum AntibioticType {
      * @return
      */
     public static int getImage(AntibioticType type) {
-        switch (type) {
-            case penicillin:
-                return R.drawable.tower_penicillin;
-            case vancomycin:
-                return R.drawable.tower_vancomycin;
-            case linezolid:
-                return R.drawable.tower_linezolid;
-            default:
-                return R.drawable.tower_placeholder;
+        if (images == null) {
+            images = TABLE.resources("image", R.drawable.class);
         }
+        return images[type.ordinal()];
     }
 
     /**
@@ -104,15 +139,34 @@ public enum AntibioticType {
      * @return
      */
     public static int getDescription(AntibioticType type) {
-        switch (type) {
-            case penicillin:
-                return R.string.penicillin_description;
-            case vancomycin:
-                return R.string.vancomycin_description;
-            case linezolid:
-                return R.string.linezolid_description;
-            default:
-                return -1;
+        if (descriptions == null) {
+            descriptions = TABLE.resources("description", R.string.class);
+        }
+        return descriptions[type.ordinal()];
+    }
+
+    /**
+     * Turn the names in the effect column into status effect kinds.
+     * @param names
+     * @return
+     */
+    private static int[] effects(String[] names) {
+        int[] kinds = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            switch (names[i]) {
+                case "slow":
+                    kinds[i] = StatusEffects.SLOW;
+                    break;
+                case "damage_over_time":
+                    kinds[i] = StatusEffects.DAMAGE_OVER_TIME;
+                    break;
+                case "shield":
+                    kinds[i] = StatusEffects.SHIELD;
+                    break;
+                default:
+                    kinds[i] = -1;
+            }
         }
+        return kinds;
     }
-}
\ No newline at end of file
+}
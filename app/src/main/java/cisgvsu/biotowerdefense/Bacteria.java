@@ -29,6 +29,22 @@ public class Bacteria {
     /** Y coordinate. */
     private int y;
 
+    /** How many identical bacteria this one stands for. More than one makes it a colony. */
+    private int population;
+
+    /** How close (in pixels) two bacteria have to be to count as the same colony. */
+    private static final int COLONY_RADIUS = 10;
+
+    /** Where this bacteria is in the game's {@link BacteriaStore}, -1 if it isn't. */
+    private int index;
+
+    /** Time spent growing since it last divided, in milliseconds. */
+    private long growth;
+
+    /** Resistance this one bacteria carries itself (one bit per antibiotic), from
+     *  mutating or from picking it up from a neighbour. */
+    private int resistanceGenes;
+
     /**
      * Create a new target with the given type and health.
      * Score value is the target's initial health.
@@ -42,6 +58,142 @@ public class Bacteria {
         this.onScreen = false;
         this.exempt = null;
         this.initialPositionSet = false;
+        this.population = 1;
+        this.index = -1;
+        this.growth = 0;
+        this.resistanceGenes = 0;
+    }
+
+    /**
+     * Create a new bacteria from this one dividing. It starts at full health in
+     * the same spot and carries the same resistance as its parent.
+     * @return The offspring.
+     */
+    public Bacteria offspring() {
+        Bacteria child = new Bacteria(type, value);
+        child.x = x;
+        child.y = y;
+        child.onScreen = onScreen;
+        child.initialPositionSet = initialPositionSet;
+        child.resistanceGenes = resistanceGenes;
+        if (exempt != null) {
+            child.exempt = new ArrayList<>(exempt);
+        }
+        return child;
+    }
+
+    /**
+     * Get the index of this bacteria in the game's store.
+     * @return The index, or -1 if it isn't in the store.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Set the index of this bacteria in the game's store.
+     * @param index
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Get how long this bacteria has been growing since it last divided.
+     * @return Time in milliseconds, a whole doubling time means it's due to divide.
+     */
+    public long getGrowth() {
+        return growth;
+    }
+
+    /**
+     * Set how long this bacteria has been growing since it last divided.
+     * @param growth Time in milliseconds
+     */
+    public void setGrowth(long growth) {
+        this.growth = growth;
+    }
+
+    /**
+     * Get how many bacteria this one stands for.
+     * @return 1 for a single bacteria, more for a colony.
+     */
+    public int getPopulation() {
+        return population;
+    }
+
+    /**
+     * Set how many bacteria this one stands for.
+     * @param population
+     */
+    public void setPopulation(int population) {
+        this.population = population;
+    }
+
+    /**
+     * Check if this is a colony standing for more than one bacteria.
+     * @return
+     */
+    public boolean isColony() {
+        return population > 1;
+    }
+
+    /**
+     * Check whether another bacteria is identical to the members of this one
+     * (same type, health and resistance) and in the same spot, so the two
+     * could be simulated as one colony.
+     * @param other
+     * @return True if they can be merged.
+     */
+    public boolean canMergeWith(Bacteria other) {
+        if (other == null || other == this || other.type != type || other.health != health
+                || other.resistanceGenes != resistanceGenes) {
+            return false;
+        }
+        for (AntibioticType antibiotic : AntibioticType.values()) {
+            if (isExempt(antibiotic) != other.isExempt(antibiotic)) {
+                return false;
+            }
+        }
+        if (initialPositionSet != other.initialPositionSet) {
+            return false;
+        }
+        return !initialPositionSet ||
+                (Math.abs(x - other.x) <= COLONY_RADIUS && Math.abs(y - other.y) <= COLONY_RADIUS);
+    }
+
+    /**
+     * Fold another bacteria (or colony) into this colony.
+     * @param other A bacteria that {@link #canMergeWith(Bacteria)} this one.
+     */
+    public void merge(Bacteria other) {
+        this.population += other.population;
+    }
+
+    /**
+     * Split some members off into their own bacteria, so they can become
+     * different from the rest of the colony (take damage, gain resistance).
+     * @param count How many members to split off, less than the population.
+     * @return The split off members, in the same spot as this colony.
+     */
+    public Bacteria split(int count) {
+        if (count <= 0 || count >= population) {
+            throw new IllegalArgumentException("Can't split " + count + " from a colony of " + population);
+        }
+        Bacteria members = new Bacteria(type, health);
+        members.value = value;
+        members.growth = growth;
+        members.resistanceGenes = resistanceGenes;
+        members.population = count;
+        members.x = x;
+        members.y = y;
+        members.onScreen = onScreen;
+        members.initialPositionSet = initialPositionSet;
+        if (exempt != null) {
+            members.exempt = new ArrayList<>(exempt);
+        }
+        this.population -= count;
+        return members;
     }
 
     /**
@@ -86,6 +238,39 @@ public class Bacteria {
         this.exempt.add(antibiotic);
     }
 
+    /**
+     * Check whether this bacteria carries its own resistance to an antibiotic.
+     * @param antibiotic
+     * @return
+     */
+    public boolean hasResistanceGene(AntibioticType antibiotic) {
+        return (resistanceGenes & (1 << antibiotic.ordinal())) != 0;
+    }
+
+    /**
+     * Give this bacteria its own resistance to an antibiotic.
+     * @param antibiotic
+     */
+    public void addResistanceGene(AntibioticType antibiotic) {
+        this.resistanceGenes |= 1 << antibiotic.ordinal();
+    }
+
+    /**
+     * Get all the resistance this bacteria carries, one bit per antibiotic ordinal.
+     * @return
+     */
+    public int getResistanceGenes() {
+        return resistanceGenes;
+    }
+
+    /**
+     * Set all the resistance this bacteria carries, one bit per antibiotic ordinal.
+     * @param genes
+     */
+    public void setResistanceGenes(int genes) {
+        this.resistanceGenes = genes;
+    }
+
     /**
      * Return the type of this target.
      * @return
@@ -0,0 +1,125 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+
+/**
+ * Lets bacteria divide over time. Each bacteria builds up growth every tick
+ * based on its type's doubling time, and divides once it's built up a whole
+ * doubling. Offspring carry their parent's resistance.
+ *
+ * One tick goes: {@link #beginTick}, then grow each queue, then
+ * {@link #endTick}, which adds all of the tick's offspring to the store in
+ * one batch.
+ */
+public class BacteriaGrowth {
+    /** Offspring born this tick that still need to go in the store. */
+    private Bacteria[] births = new Bacteria[64];
+    private int numBirths;
+
+    /** How long this tick is, in milliseconds. */
+    private long tickMillis;
+
+    /** How many more bacteria can be born this tick before hitting the cap. */
+    private int room;
+
+    /** Whether offspring join their parent's colony instead of being separate. */
+    private boolean colonies;
+
+    /** Total bacteria born this tick, colonies included. */
+    private int born;
+
+    /** Where a queue gets rebuilt with its offspring in it. */
+    private TargetQueue spare = new TargetQueue();
+
+    /**
+     * Start a new tick.
+     * @param tickMillis How much game time the tick covers.
+     * @param room How many more bacteria are allowed to be born.
+     * @param colonies True if offspring should join their parent's colony.
+     */
+    public void beginTick(long tickMillis, int room, boolean colonies) {
+        this.tickMillis = tickMillis;
+        this.room = room;
+        this.colonies = colonies;
+        this.numBirths = 0;
+        this.born = 0;
+    }
+
+    /**
+     * Let every bacteria in a tower's queue divide, putting each one's
+     * offspring right behind it so the queue stays in path order.
+     * @param queue
+     */
+    public void growQueue(TargetQueue queue) {
+        int first = numBirths;
+        for (int i = 0; i < queue.size(); i++) {
+            Bacteria parent = queue.get(i);
+            spare.add(parent);
+            int offspring = divide(parent);
+            for (int j = 0; j < offspring; j++) {
+                Bacteria child = parent.offspring();
+                spare.add(child);
+                addBirth(child);
+            }
+        }
+        if (numBirths > first) {
+            queue.swap(spare);
+        }
+        spare.clear();
+    }
+
+    /**
+     * Finish the tick by adding every separate offspring to the store.
+     * @param store
+     * @return How many bacteria were born this tick, colonies included.
+     */
+    public int endTick(BacteriaStore store) {
+        store.addAll(births, numBirths);
+        Arrays.fill(births, 0, numBirths, null);
+        numBirths = 0;
+        return born;
+    }
+
+    /**
+     * Add growth to a bacteria and work out how many offspring it has this
+     * tick. Colonies just get bigger and return 0.
+     * @param parent
+     * @return How many separate offspring need to be created.
+     */
+    private int divide(Bacteria parent) {
+        if (parent == null || room <= 0) {
+            return 0;
+        }
+        long doubling = BacteriaType.getDoublingTime(parent.getType());
+        long growth = parent.getGrowth() + tickMillis;
+        int divisions = (int) (growth / doubling);
+        parent.setGrowth(growth % doubling);
+        if (divisions == 0) {
+            return 0;
+        }
+
+        // Every member doubles for each division
+        int population = parent.getPopulation();
+        long wanted = (long) population * ((1L << Math.min(divisions, 30)) - 1);
+        int offspring = (int) Math.min(wanted, room);
+        room -= offspring;
+        born += offspring;
+
+        if (colonies) {
+            parent.setPopulation(population + offspring);
+            return 0;
+        }
+        return offspring;
+    }
+
+    /**
+     * Remember an offspring so it gets added to the store at the end of the tick.
+     * @param child
+     */
+    private void addBirth(Bacteria child) {
+        if (numBirths == births.length) {
+            births = Arrays.copyOf(births, numBirths * 2);
+        }
+        births[numBirths++] = child;
+    }
+}
@@ -0,0 +1,205 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+
+/**
+ * Holds every bacteria that's alive in the game in one flat array.
+ * The array doubles when it runs out of room, so adding is amortised
+ * O(1), but it never grows past a hard cap. Removing swaps the last
+ * bacteria into the hole, so each bacteria's index can change.
+ *
+ * Changes are synchronized since the game threads add and remove at the
+ * same time. Reading (size and get) isn't, so the drawing thread may see
+ * a slightly old picture, and has to check for null.
+ *
+ * Anything that keeps its own data by store index can listen for bacteria
+ * moving around in or leaving the store.
+ */
+public class BacteriaStore {
+    /**
+     * Gets told when bacteria leave the store or move to a different index.
+     */
+    public interface Listener {
+        /**
+         * The bacteria at an index was removed.
+         * @param index
+         */
+        void removed(int index);
+
+        /**
+         * The bacteria at one index moved to another.
+         * @param from
+         * @param to
+         */
+        void moved(int from, int to);
+
+        /**
+         * Every bacteria was removed.
+         */
+        void cleared();
+    }
+
+    /** Size of the array to start with. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The bacteria, packed into the front of the array. */
+    private volatile Bacteria[] items;
+
+    /** Number of bacteria in the store. */
+    private volatile int size;
+
+    /** Most bacteria the store will ever hold. */
+    private int maxSize;
+
+    /** Told about removals, may be null. */
+    private Listener listener;
+
+    /**
+     * Create an empty store.
+     * @param maxSize Most bacteria the store will ever hold.
+     */
+    public BacteriaStore(int maxSize) {
+        this.maxSize = maxSize;
+        this.items = new Bacteria[Math.min(INITIAL_CAPACITY, maxSize)];
+    }
+
+    /**
+     * Get the number of bacteria in the store.
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the bacteria at an index.
+     * @param index
+     * @return The bacteria, or null if the index is past the end.
+     */
+    public Bacteria get(int index) {
+        Bacteria[] array = items;
+        return index < size && index < array.length ? array[index] : null;
+    }
+
+    /**
+     * Set what gets told about bacteria leaving or moving in the store.
+     * @param listener
+     */
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the most bacteria the store will hold.
+     * @return
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Change the most bacteria the store will hold. Anything already in
+     * the store stays, even if there's more than the new cap.
+     * @param maxSize
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get how many more bacteria fit before hitting the cap.
+     * @return
+     */
+    public int remaining() {
+        return Math.max(0, maxSize - size);
+    }
+
+    /**
+     * Add a bacteria to the store.
+     * @param bacteria
+     * @return False if the store is full and the bacteria wasn't added.
+     */
+    public synchronized boolean add(Bacteria bacteria) {
+        if (size >= maxSize) {
+            return false;
+        }
+        ensureCapacity(size + 1);
+        bacteria.setIndex(size);
+        items[size] = bacteria;
+        size++;
+        return true;
+    }
+
+    /**
+     * Add a batch of bacteria at once, growing the array at most once.
+     * @param batch Array holding the bacteria to add.
+     * @param count How many from the front of the array to add.
+     * @return How many were added, fewer than count if the store filled up.
+     */
+    public synchronized int addAll(Bacteria[] batch, int count) {
+        int added = Math.min(count, maxSize - size);
+        if (added <= 0) {
+            return 0;
+        }
+        ensureCapacity(size + added);
+        Bacteria[] array = items;
+        for (int i = 0; i < added; i++) {
+            batch[i].setIndex(size + i);
+            array[size + i] = batch[i];
+        }
+        size += added;
+        return added;
+    }
+
+    /**
+     * Remove a bacteria from the store by moving the last one into its place.
+     * @param bacteria
+     * @return False if it wasn't in the store.
+     */
+    public synchronized boolean remove(Bacteria bacteria) {
+        int index = bacteria.getIndex();
+        if (index < 0 || index >= size || items[index] != bacteria) {
+            return false;
+        }
+        int last = size - 1;
+        Bacteria moved = items[last];
+        items[index] = moved;
+        moved.setIndex(index);
+        items[last] = null;
+        bacteria.setIndex(-1);
+        size = last;
+        if (listener != null) {
+            listener.removed(index);
+            if (last != index) {
+                listener.moved(last, index);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove every bacteria but keep the array for reuse.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < size; i++) {
+            items[i].setIndex(-1);
+            items[i] = null;
+        }
+        size = 0;
+        if (listener != null) {
+            listener.cleared();
+        }
+    }
+
+    /**
+     * Make sure the array can hold at least the given number of bacteria,
+     * doubling it (up to the cap) if not.
+     * @param needed
+     */
+    private void ensureCapacity(int needed) {
+        if (needed > items.length) {
+            int capacity = Math.max(needed, Math.min(maxSize, items.length * 2));
+            items = Arrays.copyOf(items, capacity);
+        }
+    }
+}
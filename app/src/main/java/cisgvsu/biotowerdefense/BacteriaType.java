@@ -3,27 +3,32 @@ package cisgvsu.biotowerdefense;
 
 /**
  * Bacteria enums that are available in the game.
+ * Their stats come from bacteria.csv, read once into arrays indexed by
+ * ordinal, so they can be tuned without touching the code.
  */
 
 public enum BacteriaType {
     staph, pneumonia, strep;
 
+    /** The stats table. */
+    private static final TypeTable TABLE = TypeTable.load("bacteria.csv", values());
+
+    private static final String[] SHORT_NAME = TABLE.strings("short_name");
+    private static final String[] LONG_NAME = TABLE.strings("long_name");
+    private static final long[] DOUBLING_TIME = TABLE.longs("doubling_time");
+    private static final int[] BIOFILM = TABLE.ints("biofilm");
+
+    /** Resource IDs, looked up the first time they're needed. */
+    private static int[] images;
+    private static int[] descriptions;
+
     /**
      * Return the short common name for the target.
      * @param type
      * @return
      */
     public static String getShortName(BacteriaType type) {
-        switch (type) {
-            case staph:
-                return "Staph";
-            case pneumonia:
-                return "Pneumonia";
-            case strep:
-                return "Strep";
-            default:
-                return null;
-        }
+        return SHORT_NAME[type.ordinal()];
     }
 
     /**
@@ -32,16 +37,36 @@ public enum BacteriaType {
      * @return
      */
     public static String getLongName(BacteriaType type) {
-        switch (type) {
-            case staph:
-                return "Staphylococcus aureus";
-            case pneumonia:
-                return "Klebsiella pneumoniae";
-            case strep:
-                return "Streptococcus pyogenes";
-            default:
-                return null;
-        }
+        return LONG_NAME[type.ordinal()];
+    }
+
+    /**
+     * Get how long it takes the bacteria type to double, if reproduction is on.
+     * @param type
+     * @return Doubling time in milliseconds
+     */
+    public static long getDoublingTime(BacteriaType type) {
+        return DOUBLING_TIME[type.ordinal()];
+    }
+
+    /**
+     * Get how much damage the biofilm a new bacteria of this type starts with
+     * can soak up. Klebsiella is known for forming biofilms.
+     * @param type
+     * @return Shield strength, 0 for no biofilm
+     */
+    public static int getBiofilm(BacteriaType type) {
+        return BIOFILM[type.ordinal()];
+    }
+
+    /**
+     * Get the BacteriaType enum from a string.
+     * @param str Short name of the type, like "staph"
+     * @return Null if there's no type with that name.
+     */
+    public static BacteriaType stringToEnum(String str) {
+        int i = TABLE.indexOf(str);
+        return i < 0 ? null : values()[i];
     }
 
     /**
@@ -50,16 +75,10 @@ public enum BacteriaType {
      * @return
      */
     public static int getImage(BacteriaType type) {
-        switch (type) {
-            case staph:
-                return R.drawable.bacteria_staph;
-            case pneumonia:
-                return R.drawable.bacteria_pneumonia;
-            case strep:
-                return R.drawable.bacteria_strep;
-            default:
-                return 0;
+        if (images == null) {
+            images = TABLE.resources("image", R.drawable.class);
         }
+        return images[type.ordinal()];
     }
 
     /**
@@ -69,15 +88,9 @@ public enum BacteriaType {
      * @return
      */
     public static int getDescription(BacteriaType type) {
-       switch (type) {
-           case staph:
-                return R.string.staph_description;
-           case pneumonia:
-               return R.string.pneumonia_description;
-           case strep:
-               return R.string.strep_desription;
-           default:
-               return 0;
-       }
+        if (descriptions == null) {
+            descriptions = TABLE.resources("description", R.string.class);
+        }
+        return descriptions[type.ordinal()];
     }
 }
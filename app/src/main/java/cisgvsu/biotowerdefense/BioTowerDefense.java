@@ -10,20 +10,29 @@ public class BioTowerDefense extends Application {
     /** The game object that all classes can reference. */
     private Game game = new Game();
 
+    /** Images shared by every screen. */
+    private BitmapCache bitmapCache;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        bitmapCache = new BitmapCache(getResources(), BitmapCache.defaultBudget());
+        game.start();
+    }
+
     /**
-     * Get the game object for this instance of the application.
+     * Get the images every screen shares.
      * @return
      */
-    public Game getGame() {
-        return game;
+    public BitmapCache getBitmapCache() {
+        return bitmapCache;
     }
 
     /**
-     * Restart the game.
+     * Get the game object for this instance of the application.
      * @return
      */
-    public Game startNew() {
-        game = new Game();
+    public Game getGame() {
         return game;
     }
 
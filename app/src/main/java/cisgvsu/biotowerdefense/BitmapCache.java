@@ -0,0 +1,288 @@
+package cisgvsu.biotowerdefense;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Decodes the app's images and keeps the most recently used ones, up to a
+ * budget in bytes shared by every screen. Images are decoded no bigger
+ * than they're asked for, opaque ones in RGB_565 (half the memory), and
+ * into the memory of bitmaps that have been handed back when they fit.
+ *
+ * Decoding is slow, so {@link #load} does it on a background thread.
+ * {@link #get} decodes right away and shouldn't be called on the UI thread
+ * unless the image is already cached.
+ */
+public class BitmapCache {
+    /**
+     * Gets told when an image has been loaded.
+     */
+    public interface Callback {
+        /**
+         * Called on the loading thread, or right away if it was cached, so
+         * post to the UI thread to show it.
+         * @param id The resource that was loaded.
+         * @param bitmap Null if it couldn't be decoded.
+         */
+        void onLoaded(int id, Bitmap bitmap);
+    }
+
+    /** Most bitmaps kept around to decode into. */
+    private static final int MAX_REUSABLE = 4;
+
+    private final Resources res;
+    private final LruCache<String, Bitmap> cache;
+
+    /** Bitmaps nobody is using anymore that new images can be decoded into. */
+    private final ArrayList<Bitmap> reusable = new ArrayList<>();
+
+    /** The one thread images are decoded on. */
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Bitmap loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Create an empty cache.
+     * @param res Resources to decode images from.
+     * @param maxBytes How much memory the cached images can take up.
+     */
+    public BitmapCache(Resources res, int maxBytes) {
+        this.res = res;
+        this.cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Get a budget that fits the device: an eighth of what the app is
+     * allowed to use.
+     * @return
+     */
+    public static int defaultBudget() {
+        return (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+    }
+
+    /**
+     * Get an image if it's already cached, without decoding it.
+     * @param id Drawable resource.
+     * @param width Width it's needed at, 0 for its own size.
+     * @param height Height it's needed at, 0 for its own size.
+     * @return Null if it isn't cached.
+     */
+    public Bitmap getCached(int id, int width, int height) {
+        return cache.get(key(id, width, height));
+    }
+
+    /**
+     * Get an image, decoding it if it isn't cached. It comes out at least
+     * as big as asked for, but may be bigger.
+     * @param id Drawable resource.
+     * @param width Width it's needed at, 0 for its own size.
+     * @param height Height it's needed at, 0 for its own size.
+     * @param opaque True if it has no transparent parts, so it can use RGB_565.
+     * @return Null if it couldn't be decoded.
+     */
+    public Bitmap get(int id, int width, int height, boolean opaque) {
+        String key = key(id, width, height);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            bitmap = decode(id, width, height, opaque);
+            if (bitmap != null) {
+                cache.put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get an image scaled to exactly a size, like a background that fills
+     * the screen. The unscaled one it's made from is kept to decode into.
+     * @param id Drawable resource.
+     * @param width
+     * @param height
+     * @param opaque True if it has no transparent parts, so it can use RGB_565.
+     * @return Null if it couldn't be decoded.
+     */
+    public Bitmap getScaled(int id, int width, int height, boolean opaque) {
+        String key = "scaled:" + key(id, width, height);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            Bitmap source = decode(id, width, height, opaque);
+            if (source == null) {
+                return null;
+            }
+            bitmap = Bitmap.createScaledBitmap(source, width, height, true);
+            if (bitmap != source) {
+                reuse(source);
+            }
+            cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Load an image on the loading thread, or hand it over right away if
+     * it's already cached.
+     * @param id Drawable resource.
+     * @param width Width it's needed at, 0 for its own size.
+     * @param height Height it's needed at, 0 for its own size.
+     * @param opaque True if it has no transparent parts, so it can use RGB_565.
+     * @param callback
+     */
+    public void load(final int id, final int width, final int height, final boolean opaque,
+                     final Callback callback) {
+        Bitmap cached = getCached(id, width, height);
+        if (cached != null) {
+            callback.onLoaded(id, cached);
+            return;
+        }
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onLoaded(id, get(id, width, height, opaque));
+            }
+        });
+    }
+
+    /**
+     * Run something on the loading thread, after anything already waiting.
+     * @param task
+     */
+    public void execute(Runnable task) {
+        loader.execute(task);
+    }
+
+    /**
+     * Hand back a bitmap that isn't cached and that nothing draws anymore,
+     * so a later image can be decoded into its memory.
+     * @param bitmap
+     */
+    public void reuse(Bitmap bitmap) {
+        if (bitmap == null || !bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        synchronized (reusable) {
+            if (reusable.size() == MAX_REUSABLE) {
+                reusable.remove(0);
+            }
+            reusable.add(bitmap);
+        }
+    }
+
+    /**
+     * Get how many bytes of images are cached.
+     * @return
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Get how many bytes of images can be cached.
+     * @return
+     */
+    public int getMaxSize() {
+        return cache.maxSize();
+    }
+
+    /**
+     * Decode an image at the smallest power-of-two reduction that's still
+     * at least as big as asked for.
+     */
+    private Bitmap decode(int id, int width, int height, boolean opaque) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(res, id, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+        options.inPreferredConfig = opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        options.inBitmap = takeReusable(options);
+        try {
+            return BitmapFactory.decodeResource(res, id, options);
+        } catch (IllegalArgumentException e) {
+            // Didn't fit after all, decode into new memory
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(res, id, options);
+        }
+    }
+
+    /**
+     * Find a handed back bitmap the decoded image will fit in, and take it
+     * out of the pool.
+     * @return Null if none fit.
+     */
+    private Bitmap takeReusable(BitmapFactory.Options options) {
+        synchronized (reusable) {
+            for (int i = 0; i < reusable.size(); i++) {
+                Bitmap candidate = reusable.get(i);
+                if (fits(candidate, options)) {
+                    reusable.remove(i);
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if an image being decoded can go in a bitmap. Before KitKat it
+     * has to be exactly the same size and not sampled down; after, it just
+     * has to have room.
+     */
+    private static boolean fits(Bitmap candidate, BitmapFactory.Options options) {
+        int sample = Math.max(1, options.inSampleSize);
+        int width = options.outWidth / sample;
+        int height = options.outHeight / sample;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int bytesPerPixel = options.inPreferredConfig == Bitmap.Config.RGB_565 ? 2 : 4;
+            return width * height * bytesPerPixel <= candidate.getAllocationByteCount();
+        }
+        return sample == 1 && candidate.getWidth() == width && candidate.getHeight() == height
+                && candidate.getConfig() == options.inPreferredConfig;
+    }
+
+    /**
+     * Work out how much to sample an image down by: the biggest power of
+     * two that still leaves it at least as big as asked for.
+     * @param sourceWidth
+     * @param sourceHeight
+     * @param width Width it's needed at, 0 for its own size.
+     * @param height Height it's needed at, 0 for its own size.
+     * @return
+     */
+    static int sampleSize(int sourceWidth, int sourceHeight, int width, int height) {
+        int sample = 1;
+        if (width <= 0 || height <= 0) {
+            return sample;
+        }
+        while (sourceWidth / (sample * 2) >= width && sourceHeight / (sample * 2) >= height) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private static String key(int id, int width, int height) {
+        return id + ":" + width + "x" + height;
+    }
+}
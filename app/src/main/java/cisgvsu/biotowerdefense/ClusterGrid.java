@@ -0,0 +1,145 @@
+package cisgvsu.biotowerdefense;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Level of detail for big swarms. Bacteria are dropped into a coarse grid
+ * over the screen, and each grid cell draws one sprite per type at the
+ * middle of that group with a badge showing how many it stands for.
+ */
+public class ClusterGrid {
+    /** Size of one grid cell, in pixels. */
+    private static final int CELL_SIZE = 96;
+
+    /** Number of kinds of sprite we group separately. */
+    private static final int KINDS = SpriteAtlas.NUM_SPRITES;
+
+    private final int cols;
+    private final int rows;
+
+    /** How many sprites of each kind are in each cell. */
+    private final int[] counts;
+
+    /** How many bacteria those sprites stand for (colonies count more than once). */
+    private final int[] population;
+
+    /** Sum of the x coordinates in each cell, for finding the middle. */
+    private final float[] sumX;
+
+    /** Sum of the y coordinates in each cell, for finding the middle. */
+    private final float[] sumY;
+
+    /** Cells (times kinds) that have something in them this frame. */
+    private final int[] used;
+    private int numUsed;
+
+    /** Reused buffer for badge text so we don't make strings every frame. */
+    private final char[] badge = new char[12];
+
+    /**
+     * Create a grid covering a screen of the given size.
+     * @param width
+     * @param height
+     */
+    public ClusterGrid(int width, int height) {
+        this.cols = width / CELL_SIZE + 1;
+        this.rows = height / CELL_SIZE + 1;
+        int size = cols * rows * KINDS;
+        this.counts = new int[size];
+        this.population = new int[size];
+        this.sumX = new float[size];
+        this.sumY = new float[size];
+        this.used = new int[size];
+    }
+
+    /**
+     * Empty the grid for a new frame. Only touches cells that were used.
+     */
+    public void reset() {
+        for (int i = 0; i < numUsed; i++) {
+            int slot = used[i];
+            counts[slot] = 0;
+            population[slot] = 0;
+            sumX[slot] = 0;
+            sumY[slot] = 0;
+        }
+        numUsed = 0;
+    }
+
+    /**
+     * Add a sprite drawn with its top left corner at (x, y). Must be on screen.
+     * @param sprite Sprite index in the atlas.
+     * @param x
+     * @param y
+     * @param count How many bacteria the sprite stands for.
+     */
+    public void add(int sprite, float x, float y, int count) {
+        int col = Math.min(cols - 1, Math.max(0, (int) x / CELL_SIZE));
+        int row = Math.min(rows - 1, Math.max(0, (int) y / CELL_SIZE));
+        int slot = (row * cols + col) * KINDS + sprite;
+        if (counts[slot] == 0) {
+            used[numUsed++] = slot;
+        }
+        counts[slot]++;
+        population[slot] += count;
+        sumX[slot] += x;
+        sumY[slot] += y;
+    }
+
+    /**
+     * Queue one sprite for each group in the grid.
+     * @param batch
+     */
+    public void queueSprites(SpriteBatch batch) {
+        for (int i = 0; i < numUsed; i++) {
+            int slot = used[i];
+            int n = counts[slot];
+            batch.add(slot % KINDS, sumX[slot] / n, sumY[slot] / n);
+        }
+    }
+
+    /**
+     * Draw the count on top of every group that stands for more than one
+     * bacteria. Call after the batch has been flushed so they end up on top.
+     * @param canvas
+     * @param paint
+     */
+    public void drawBadges(Canvas canvas, Paint paint) {
+        for (int i = 0; i < numUsed; i++) {
+            int slot = used[i];
+            int n = counts[slot];
+            if (population[slot] > 1) {
+                drawBadge(canvas, paint, population[slot], sumX[slot] / n, sumY[slot] / n);
+            }
+        }
+    }
+
+    /**
+     * Draw a count badge at (x, y).
+     * @param canvas
+     * @param paint
+     * @param count The number to show.
+     * @param x
+     * @param y
+     */
+    public void drawBadge(Canvas canvas, Paint paint, int count, float x, float y) {
+        int len = writeCount(count);
+        canvas.drawText(badge, badge.length - len, len, x, y, paint);
+    }
+
+    /**
+     * Write a count into the end of the badge buffer.
+     * @param n The count to write.
+     * @return The number of characters written.
+     */
+    private int writeCount(int n) {
+        int pos = badge.length;
+        do {
+            badge[--pos] = (char) ('0' + n % 10);
+            n /= 10;
+        } while (n > 0);
+        badge[--pos] = 'x';
+        return badge.length - pos;
+    }
+}
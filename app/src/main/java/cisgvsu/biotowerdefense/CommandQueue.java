@@ -0,0 +1,73 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free queue of {@link GameCommand}s with any number of threads
+ * submitting and one thread taking them off. Submitting is one atomic swap
+ * of the tail, so the UI never waits on the simulation, and taking a
+ * command off doesn't need any atomics at all.
+ *
+ * A command can show up a little late if its submitter is between the swap
+ * and linking it in, but it'll be there the next time the queue is polled.
+ */
+public class CommandQueue {
+    /**
+     * Placeholder the queue starts with.
+     */
+    private static class Stub extends GameCommand {
+        @Override
+        public void run() {
+        }
+    }
+
+    /** Last command submitted, where new ones get linked on. */
+    private final AtomicReference<GameCommand> tail;
+
+    /** Command before the next one to take off. Only the taking thread touches it. */
+    private GameCommand head;
+
+    /**
+     * Create an empty queue.
+     */
+    public CommandQueue() {
+        GameCommand stub = new Stub();
+        head = stub;
+        tail = new AtomicReference<>(stub);
+    }
+
+    /**
+     * Add a command to the end of the queue. Safe from any thread.
+     * @param command
+     */
+    public void offer(GameCommand command) {
+        command.next = null;
+        GameCommand prev = tail.getAndSet(command);
+        prev.next = command;
+    }
+
+    /**
+     * Take the next command off the queue. Only the simulation thread
+     * should call this.
+     * @return The command, or null if there isn't one yet.
+     */
+    public GameCommand poll() {
+        GameCommand next = head.next;
+        if (next == null) {
+            return null;
+        }
+        // The command stays as the head, but it's already been handed out
+        head.next = null;
+        head = next;
+        return next;
+    }
+
+    /**
+     * Check if there's a command waiting. Only the simulation thread should
+     * call this.
+     * @return
+     */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+}
@@ -0,0 +1,141 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Keeps the score and money, broken down by where they came from. The
+ * simulation thread credits into plain pending counters as things happen,
+ * and {@link #commit()} adds them to the totals once per batch (a systems
+ * tick, a payday, a purchase). The totals are atomic arrays, so the HUD and
+ * the end-of-game stats can read them from any thread without locking and
+ * never see half a batch.
+ */
+public class Economy {
+    /** Killing bacteria. */
+    public static final int KILLS = 0;
+
+    /** Staying alive, paid out every so often. */
+    public static final int TIME = 1;
+
+    /** Buying towers. */
+    public static final int PURCHASES = 2;
+
+    /** Number of sources. */
+    public static final int NUM_SOURCES = 3;
+
+    /** Credited since the last commit, by source. Only the simulation thread touches these. */
+    private final int[] pendingScore = new int[NUM_SOURCES];
+    private final int[] pendingMoney = new int[NUM_SOURCES];
+    private final int[] pendingCount = new int[NUM_SOURCES];
+    private boolean dirty;
+
+    /** Committed totals by source, with the sum over every source at the end. */
+    private final AtomicIntegerArray score = new AtomicIntegerArray(NUM_SOURCES + 1);
+    private final AtomicIntegerArray money = new AtomicIntegerArray(NUM_SOURCES + 1);
+
+    /** How many times each source has paid out, like how many kills. */
+    private final AtomicIntegerArray count = new AtomicIntegerArray(NUM_SOURCES);
+
+    /**
+     * Credit score and money to a source. Nothing shows up in the totals
+     * until the next {@link #commit()}.
+     * @param source Where it came from, like {@link #KILLS}.
+     * @param score Score to add.
+     * @param money Money to add, negative to spend.
+     */
+    public void credit(int source, int score, int money) {
+        pendingScore[source] += score;
+        pendingMoney[source] += money;
+        pendingCount[source]++;
+        dirty = true;
+    }
+
+    /**
+     * Add everything credited since last time to the totals.
+     */
+    public void commit() {
+        if (!dirty) {
+            return;
+        }
+        int scoreTotal = 0;
+        int moneyTotal = 0;
+        for (int i = 0; i < NUM_SOURCES; i++) {
+            if (pendingCount[i] == 0) {
+                continue;
+            }
+            score.addAndGet(i, pendingScore[i]);
+            money.addAndGet(i, pendingMoney[i]);
+            count.addAndGet(i, pendingCount[i]);
+            scoreTotal += pendingScore[i];
+            moneyTotal += pendingMoney[i];
+            pendingScore[i] = 0;
+            pendingMoney[i] = 0;
+            pendingCount[i] = 0;
+        }
+        // The sums go last, so whoever sees them also sees the sources
+        score.addAndGet(NUM_SOURCES, scoreTotal);
+        money.addAndGet(NUM_SOURCES, moneyTotal);
+        dirty = false;
+    }
+
+    /**
+     * Throw away everything, pending or not, for a new game. Only the
+     * simulation thread should call this.
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_SOURCES; i++) {
+            pendingScore[i] = 0;
+            pendingMoney[i] = 0;
+            pendingCount[i] = 0;
+            score.set(i, 0);
+            money.set(i, 0);
+            count.set(i, 0);
+        }
+        score.set(NUM_SOURCES, 0);
+        money.set(NUM_SOURCES, 0);
+        dirty = false;
+    }
+
+    /**
+     * Get the total score.
+     * @return
+     */
+    public int getScore() {
+        return score.get(NUM_SOURCES);
+    }
+
+    /**
+     * Get the total money.
+     * @return
+     */
+    public int getMoney() {
+        return money.get(NUM_SOURCES);
+    }
+
+    /**
+     * Get how much score a source has given.
+     * @param source
+     * @return
+     */
+    public int getScore(int source) {
+        return score.get(source);
+    }
+
+    /**
+     * Get how much money a source has given, negative if it's spent money.
+     * @param source
+     * @return
+     */
+    public int getMoney(int source) {
+        return money.get(source);
+    }
+
+    /**
+     * Get how many times a source has paid out.
+     * @param source
+     * @return
+     */
+    public int getCount(int source) {
+        return count.get(source);
+    }
+}
@@ -1,95 +1,285 @@
 package cisgvsu.biotowerdefense;
 
-import android.util.Log;
-
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Observable;
-import java.util.Queue;
-import java.util.Vector;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Observer;
+import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class controls the interaction of antibiotic towers and target.
  */
 public class Game extends Observable {
     /** The number of towers allowed in the game. */
-    private static final int NUM_TOWERS = 5;
+    static final int NUM_TOWERS = 5;
+
+    /** Default cap on how many bacteria can be alive at once. */
+    private static final int MAX_BACTERIA = 100000;
+
+    /** How often the bacteria move between queues, grow and evolve, in milliseconds. */
+    private static final long BACTERIA_TICK = 1000;
+
+    /** How often a new bacteria shows up, in milliseconds. */
+    private static final long SPAWN_TICK = 1000;
+
+    /** How often score and money are paid out, in milliseconds. */
+    private static final long INCOME_TICK = 1000;
+
+    /** How often the game's systems run, in milliseconds. */
+    private static final long SYSTEMS_TICK = 20;
+
+    /** How fast bacteria move along the path, in pixels per second. */
+    private static final int BACTERIA_SPEED = 300;
+
+    /** How fast pills fly, in pixels per second. */
+    private static final float PILL_SPEED = 180;
 
-    /** List of towers. */
-    public CopyOnWriteArrayList<AntibioticTower> towers;
+    /** Fewest bacteria worth moving on another thread. */
+    private static final int MOVEMENT_GRAIN = 2048;
 
-    /** Mapping of the target that are in each tower's range.  */
-    public ConcurrentHashMap<AntibioticTower, Queue<Bacteria>> bacteriaToTower;
+    /** How long the biofilm a new bacteria starts with lasts, in milliseconds. */
+    private static final long BIOFILM_DURATION = 10000;
+
+    /** Length of one timing wheel tick, in milliseconds. */
+    private static final long TICK_MILLIS = 10;
+
+    /** Most game time the simulation catches up on at once after a stall,
+     *  in milliseconds, so it doesn't fall further and further behind. */
+    private static final long MAX_CATCH_UP = 250;
+
+    /** The tower in each slot, null where there isn't one. */
+    private AntibioticTower[] towers = new AntibioticTower[NUM_TOWERS];
+
+    /** Target lined up for the tower in each slot, in path order. The
+     *  queue stays with the slot when its tower is replaced. */
+    private TargetQueue[] queues = new TargetQueue[NUM_TOWERS];
+
+    /** Where a queue gets rebuilt when colonies split in it. */
+    private TargetQueue spareQueue = new TargetQueue();
 
     /** Bacteria that aren't in any tower's range. */
-    private CopyOnWriteArrayList<Bacteria> unassignedBacteria;
+    private TargetQueue unassignedBacteria = new TargetQueue();
+
+    /** Every bacteria that's alive, whether it's in a tower's range or not. */
+    private BacteriaStore allBacteria = new BacteriaStore(MAX_BACTERIA);
+
+    /** Lets the bacteria divide, if reproduction is on. */
+    private BacteriaGrowth growth = new BacteriaGrowth();
+
+    /** Where all the game's random rolls come from, so a game can be seeded. */
+    private Random random = new Random();
+
+    /** What the random rolls were seeded with at the start of this game. */
+    private long seed;
+
+    /** Spreads resistance between neighbouring bacteria, if gene transfer is on. */
+    private GeneTransfer geneTransfer = new GeneTransfer(random);
+
+    /** Builds up exposure to each antibiotic and decides when resistance shows up. */
+    private ResistanceModel resistanceModel = new ResistanceModel(random);
+
+    /** Slows, damage over time and biofilm shields on the bacteria, by store index. */
+    private StatusEffects effects = new StatusEffects();
+
+    /** Resistance that has shown up at least once for each bacteria type under
+     *  gene transfer, one bit per antibiotic, so the player is only told once. */
+    private int[] emergedResistance = new int[BacteriaType.values().length];
 
     /** Antibiotic resistance for new target. */
-    private ConcurrentHashMap<BacteriaType, List<AntibioticType>> resistances;
+    private HashMap<BacteriaType, List<AntibioticType>> resistances = new HashMap<>();
+
+    /** Everything that happens on a timer: tower cooldowns, spawns and income. */
+    private TimingWheel wheel = new TimingWheel();
+
+    /** The cooldown for the tower at each location, null if there's no tower. */
+    private TowerCooldown[] cooldowns = new TowerCooldown[NUM_TOWERS];
+
+    /** Whether the tower at each location is off cooldown and ready to fire. */
+    private boolean[] towerReady = new boolean[NUM_TOWERS];
+
+    /** The timed actions that keep the game going. */
+    private TimedAction spawnTick = new SpawnTick();
+    private TimedAction incomeTick = new IncomeTick();
+    private TimedAction systemsTick = new SystemsTick();
+
+    /** Every gameplay rule, run in order every systems tick. */
+    private SystemRunner systems = new SystemRunner();
+
+    /** The systems that keep time of their own, so a reset can start them over. */
+    private GrowthSystem growthSystem = new GrowthSystem();
+    private ResistanceSystem resistanceSystem = new ResistanceSystem();
+
+    /** Threads the systems split big phases across. */
+    private WorkerPool pool = WorkerPool.getShared();
+
+    /** Size of the screen the path is laid out on, 0 until it's known. */
+    private int width;
+    private int height;
+
+    /** Whether a bacteria has got past the towers. */
+    private volatile boolean lost;
+
+    /** Whether a new bacteria shows up every spawn tick on its own. */
+    private boolean autoSpawn = true;
+
+    /** Whether bacteria that get past the towers are just counted instead of ending the game. */
+    private boolean endless;
 
-    /** The thread that adds target to the game. */
-    private BacteriaThread bacteriaThread = new BacteriaThread();
+    /** How many bacteria have got past the towers in endless mode. */
+    private long escaped;
 
-    /** The set of threads that make the towers shoot. */
-    private CopyOnWriteArrayList<TowerThread> towerThreads = new CopyOnWriteArrayList<>();
+    /** All the time passed to {@link #advance} this game, paused or not. */
+    private volatile long clockMillis;
+
+    /** The player's commands this game, as scenario events, to replay it. */
+    private CopyOnWriteArrayList<String> session = new CopyOnWriteArrayList<>();
+
+    /** The thread that moves the timing wheel along and makes the UI's changes. */
+    private SimulationThread simulationThread;
+
+    /** Game time that hasn't made up a whole wheel tick yet, in milliseconds. */
+    private long pendingMillis;
 
     /** The List of pills currently drawn on the screen */
     private CopyOnWriteArrayList<Pill> pills = new CopyOnWriteArrayList<>();
 
-    /** Control whether the game should be running the thread to add target. */
-    private boolean addingBacteria;
+    /** Changes asked for by the UI, waiting for the simulation thread. */
+    private CommandQueue commands = new CommandQueue();
+
+    /** Set once the game is thrown away, to let the simulation thread finish. */
+    private volatile boolean quit;
 
-    /** Keep track of the current score */
-    private int score;
+    /** Everyone who's subscribed, so the ones that are gone can be counted and dropped. */
+    private CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
 
-    /** Keep track of the current money in the game. */
-    private int money = 0;
+    /** Keep track of the current score and money, and where they came from. */
+    private Economy economy = new Economy();
 
     /** For other classes to see if the game is paused or not. */
-    private boolean isPaused = true;
+    private volatile boolean isPaused = true;
 
     /** All the towers we've purchased. */
-    private ConcurrentHashMap<AntibioticType, Integer> inventory;
+    private Inventory inventory = new Inventory();
+
+    /** Copy of the inventory for the UI to read, replaced whenever it changes. */
+    private volatile Inventory shownInventory = new Inventory();
 
     /** Message about target resistance being displayed to the user */
     private String resistanceString = "";
 
+    /** Whether identical bacteria in the same spot are simulated as one colony. */
+    private boolean coloniesEnabled = false;
+
+    /** Whether bacteria divide over time. */
+    private boolean reproductionEnabled = false;
+
+    /** Whether resistance belongs to single bacteria and spreads to neighbours,
+     *  instead of a whole type becoming resistant at once. */
+    private boolean geneTransferEnabled = false;
+
     /**
      * Creates a new game instance by instantiating the
-     * fields, making them all thread-safe.
+     * fields. Only the simulation thread changes them, anything else goes
+     * through a {@link GameCommand}.
      */
     public Game() {
-        // Instantiate lists
-        towers = new CopyOnWriteArrayList<>();
-        for (int i = 0; i < NUM_TOWERS; i++) {
-            towers.add(null);
-            towerThreads.add(null);
-        }
-        bacteriaToTower = new ConcurrentHashMap<>();
-        resistances = new ConcurrentHashMap<>();
-        unassignedBacteria = new CopyOnWriteArrayList<>();
-        inventory = new ConcurrentHashMap<>();
 
+        // Status effects follow the bacteria around in the store
+        allBacteria.setListener(effects);
+
+        // The order the rules run in every tick
+        systems.add(new MovementSystem());
+        systems.add(new TargetingSystem());
+        systems.add(new DamageSystem());
+        systems.add(growthSystem);
+        systems.add(resistanceSystem);
+        systems.add(new CleanupSystem());
+
+        setSeed(random.nextLong());
+        startTimers();
+    }
+
+    /**
+     * Give the player their starting tower and put the game's own timers on
+     * the wheel. Used for a new game and after a reset.
+     */
+    private void startTimers() {
         // Put one penicillin tower in the inventory to start with
-        this.inventory.put(AntibioticType.penicillin, 1);
+        addToInventory(AntibioticType.penicillin);
+
+        // Income comes before the spawn on the same tick, since the spawn
+        // depends on the score
+        wheel.schedule(incomeTick, ticks(INCOME_TICK));
+        wheel.schedule(spawnTick, ticks(SPAWN_TICK));
+        wheel.schedule(systemsTick, ticks(SYSTEMS_TICK));
     }
 
     /**
-     * Add target and make the towers shoot.
+     * Start the thread that runs the game in real time. The game stays
+     * paused until it's resumed, but changes asked for in the meantime
+     * still go through. Leave this out to move the game along with
+     * {@link #advance(long)} instead.
      */
-    public void restartGame() {
-        this.startAddingBacteria();
-        if (towers != null && towers.size() > 0) {
-            for (AntibioticTower t : towers) {
-                this.activateTower(t);
+    public synchronized void start() {
+        if (simulationThread == null && !quit) {
+            simulationThread = new SimulationThread();
+            simulationThread.start();
+        }
+    }
+
+    /**
+     * Let the simulation thread finish, once the game isn't needed anymore.
+     */
+    public void quit() {
+        quit = true;
+        wake();
+    }
+
+    /**
+     * Send game events to an observer without keeping it alive. Use this
+     * instead of addObserver for anything that doesn't live as long as the
+     * game, like a screen, and cancel it when it's destroyed.
+     * @param observer
+     * @return The subscription, to cancel it.
+     */
+    public Subscription subscribe(Observer observer) {
+        // Drop ones that were cancelled or thrown away, so the list doesn't grow
+        for (Subscription old : subscriptions) {
+            if (!old.isActive()) {
+                old.cancel();
+                subscriptions.remove(old);
             }
         }
-        this.isPaused = false;
+        Subscription subscription = new Subscription(this, observer);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Get how many subscribers are still around, for debugging leaks. Ones
+     * that were cancelled or thrown away aren't counted.
+     * @return
+     */
+    public int getSubscriberCount() {
+        int count = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isActive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add target and make the towers shoot.
+     */
+    public void restartGame() {
+        submit(new Resume());
     }
 
     /**
@@ -97,7 +287,33 @@ public class Game extends Observable {
      * moving.
      */
     public void stopGame() {
-        this.addingBacteria = false;
+        submit(new Pause());
+    }
+
+    /**
+     * Start over with a new game, paused, in this same object. Everything
+     * the game has built up is cleared out but kept for reuse, and the
+     * simulation thread and observers stay as they are, so the screen can
+     * keep showing this game.
+     */
+    public void reset() {
+        submit(new Reset());
+    }
+
+    /**
+     * Make the towers shoot and let the wheel run again.
+     */
+    private void resume() {
+        for (AntibioticTower t : towers) {
+            this.activateTower(t);
+        }
+        this.isPaused = false;
+    }
+
+    /**
+     * Stop the towers from shooting and the wheel from running.
+     */
+    private void pause() {
         this.isPaused = true;
         for (AntibioticTower t : towers) {
             if (t != null) {
@@ -106,21 +322,144 @@ public class Game extends Observable {
         }
     }
 
+    /**
+     * Throw away everything from the last game and set up a new one. The
+     * stores, queues and the wheel are emptied, not replaced.
+     */
+    private void clearGame() {
+        pause();
+        wheel.clear();
+        for (int i = 0; i < NUM_TOWERS; i++) {
+            towers[i] = null;
+            cooldowns[i] = null;
+            if (queues[i] != null) {
+                queues[i].clear();
+            }
+        }
+        Arrays.fill(towerReady, false);
+        unassignedBacteria.clear();
+        spareQueue.clear();
+        allBacteria.clear();
+        pills.clear();
+
+        resistanceModel.clear();
+        resistances.clear();
+        Arrays.fill(emergedResistance, 0);
+        resistanceString = "";
+
+        economy.reset();
+        inventory.clear();
+        growthSystem.elapsed = 0;
+        resistanceSystem.elapsed = 0;
+        systems.resetTimings();
+        pendingMillis = 0;
+        lost = false;
+        escaped = 0;
+        clockMillis = 0;
+        session.clear();
+
+        // A new seed for every game, so each one can be replayed from the start
+        setSeed(random.nextLong());
+        startTimers();
+    }
+
+    /**
+     * Queue up a change for the simulation thread to make between ticks.
+     *
+     * @param command
+     */
+    private void submit(GameCommand command) {
+        commands.offer(command);
+        wake();
+    }
+
+    /**
+     * Wake the simulation thread if it's waiting while paused.
+     */
+    private void wake() {
+        Thread thread = simulationThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Make every change that's been asked for so far.
+     */
+    private void runCommands() {
+        GameCommand command;
+        while ((command = commands.poll()) != null) {
+            command.run();
+            String event = command.describe();
+            if (event != null) {
+                session.add("at " + clockMillis + " " + event);
+            }
+        }
+    }
+
     /**
      * See if any of the bacteria are off the screen and if so,
-     * update observers of the loss.
+     * stop the game and update observers of the loss.
      */
     public void checkForLoss() {
-        for (Bacteria b : getAllBacteria()) {
+        if (lost) {
+            return;
+        }
+        for (int i = 0; i < allBacteria.size(); i++) {
+            Bacteria b = allBacteria.get(i);
             if (b != null && !b.isOnScreen()) {
+                if (endless) {
+                    // The last one moves into this spot, so look at it again
+                    escaped += b.getPopulation();
+                    removeFromQueues(b);
+                    allBacteria.remove(b);
+                    i--;
+                    continue;
+                }
+                lost = true;
+                pause();
+                economy.commit();
                 setChanged();
                 ObserverMessage msg = new ObserverMessage(ObserverMessage.GAME_OVER,
-                        "Game over! A bacteria got past the antibiotics and infected you.\nFinal Score: " + getScore());
+                        "Game over! A bacteria got past the antibiotics and infected you.\nFinal Score: " + getScore()
+                        + "\nBacteria killed: " + economy.getCount(Economy.KILLS));
                 notifyObservers(msg);
+                return;
             }
         }
     }
 
+    /**
+     * Set the size of the screen the path is laid out on. Nothing moves
+     * until this is known.
+     * @param width
+     * @param height
+     */
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Set how many threads the systems split big phases across. Seeded games
+     * play out the same way whatever this is.
+     * @param threads 1 to run everything on the simulation thread.
+     */
+    public void setThreads(int threads) {
+        if (pool != WorkerPool.getShared()) {
+            pool.shutdown();
+        }
+        pool = new WorkerPool(threads);
+    }
+
+    /**
+     * Get the game's systems, to see how long each one is taking.
+     * @return
+     */
+    public SystemRunner getSystems() {
+        return systems;
+    }
+
     /**
      * Get the value of the isPaused variable.
      * @return True if paused, false otherwise.
@@ -136,8 +475,8 @@ public class Game extends Observable {
      * @return Tower if it exists, null otherwise.
      */
     public AntibioticTower towerAtIndex(int index) {
-        if (index < towers.size() && index >= 0) {
-            return towers.get(index);
+        if (index < towers.length && index >= 0) {
+            return towers[index];
         } else {
             return null;
         }
@@ -147,14 +486,9 @@ public class Game extends Observable {
      * Return all the target in the game so their
      * locations can be accessed to draw them.
      *
-     * @return A list of all the target.
+     * @return The store holding all the target.
      */
-    public CopyOnWriteArrayList<Bacteria> getAllBacteria() {
-        CopyOnWriteArrayList<Bacteria> allBacteria = new CopyOnWriteArrayList<>();
-        for (Queue<Bacteria> queue : bacteriaToTower.values()) {
-            allBacteria.addAll(queue);
-        }
-        allBacteria.addAll(unassignedBacteria);
+    public BacteriaStore getAllBacteria() {
         return allBacteria;
     }
 
@@ -175,12 +509,221 @@ public class Game extends Observable {
     }
 
 
+    /**
+     * Get whether identical bacteria in the same spot are grouped into colonies.
+     * @return True if colonies are on.
+     */
+    public boolean isColoniesEnabled() {
+        return this.coloniesEnabled;
+    }
+
+    /**
+     * Turn grouping identical bacteria in the same spot into colonies on or off.
+     * Colonies that already exist stay as they are.
+     * @param enabled
+     */
+    public void setColoniesEnabled(boolean enabled) {
+        this.coloniesEnabled = enabled;
+    }
+
+    /**
+     * Get whether bacteria divide over time.
+     * @return True if reproduction is on.
+     */
+    public boolean isReproductionEnabled() {
+        return this.reproductionEnabled;
+    }
+
+    /**
+     * Turn bacteria dividing over time on or off.
+     * @param enabled
+     */
+    public void setReproductionEnabled(boolean enabled) {
+        this.reproductionEnabled = enabled;
+    }
+
+    /**
+     * Get whether resistance spreads between neighbouring bacteria.
+     * @return True if gene transfer is on.
+     */
+    public boolean isGeneTransferEnabled() {
+        return this.geneTransferEnabled;
+    }
+
+    /**
+     * Turn gene transfer on or off. When it's on, a bacteria that becomes
+     * resistant only makes itself resistant, and passes the resistance on to
+     * bacteria near it (and its offspring) over time.
+     * @param enabled
+     */
+    public void setGeneTransferEnabled(boolean enabled) {
+        this.geneTransferEnabled = enabled;
+    }
+
+    /**
+     * Turn the bacteria that show up on their own every second on or off.
+     * With it off, bacteria only come from {@link #spawn}.
+     * @param enabled
+     */
+    public void setAutoSpawn(boolean enabled) {
+        this.autoSpawn = enabled;
+    }
+
+    /**
+     * Turn endless mode on or off. In endless mode the game never ends,
+     * bacteria that get past the towers are just taken out and counted.
+     * @param enabled
+     */
+    public void setEndless(boolean enabled) {
+        this.endless = enabled;
+    }
+
+    /**
+     * Get how many bacteria have got past the towers in endless mode.
+     * @return
+     */
+    public long getEscaped() {
+        return escaped;
+    }
+
+    /**
+     * Check if a bacteria has got past the towers.
+     * @return
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * Seed the game's random rolls, so the same seed plays out the same way.
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        random.setSeed(seed);
+    }
+
+    /**
+     * Get what this game's random rolls were seeded with.
+     * @return
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get everything the player has done this game as a {@link Scenario},
+     * so it can be played back the same way without a screen. Save it when
+     * the game ends to add it to the replays the tests check.
+     * @return The scenario's text.
+     */
+    public String getSession() {
+        StringBuilder out = new StringBuilder();
+        out.append("# Recorded session\n");
+        out.append("seed ").append(seed).append('\n');
+        out.append("duration ").append(clockMillis).append('\n');
+        out.append("screen ").append(width).append(' ').append(height).append('\n');
+        out.append("max_bacteria ").append(getMaxBacteria()).append('\n');
+        out.append("colonies ").append(onOff(coloniesEnabled)).append('\n');
+        out.append("reproduction ").append(onOff(reproductionEnabled)).append('\n');
+        out.append("gene_transfer ").append(onOff(geneTransferEnabled)).append('\n');
+        out.append("auto_spawn ").append(onOff(autoSpawn)).append('\n');
+        out.append("endless ").append(onOff(endless)).append('\n');
+        out.append("paused on\n");
+        for (String event : session) {
+            out.append(event).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String onOff(boolean on) {
+        return on ? "on" : "off";
+    }
+
+    /**
+     * Work out a hash of everything that decides how the game plays out
+     * from here: the clock, score, towers, inventory, and every bacteria
+     * and pill. Two runs of the same seed and commands should always come
+     * out with the same hash. Only call it between ticks, like on a game
+     * moved along with {@link #advance(long)}.
+     * @return
+     */
+    public long getStateHash() {
+        // Time is counted in wheel ticks, since the steps it was moved
+        // along in can be cut up differently when it's replayed
+        long h = hash(0, wheel.getTime());
+        h = hash(h, lost ? 1 : 0);
+        h = hash(h, isPaused ? 1 : 0);
+        h = hash(h, escaped);
+        h = hash(h, economy.getScore());
+        h = hash(h, economy.getMoney());
+        for (int source = 0; source < Economy.NUM_SOURCES; source++) {
+            h = hash(h, economy.getCount(source));
+        }
+        for (int count : inventory.getCounts()) {
+            h = hash(h, count);
+        }
+        for (int i = 0; i < NUM_TOWERS; i++) {
+            AntibioticTower tower = towers[i];
+            h = hash(h, tower == null ? -1 : tower.getType().ordinal());
+            h = hash(h, tower != null && tower.getShooting() ? 1 : 0);
+        }
+        for (int count : emergedResistance) {
+            h = hash(h, count);
+        }
+        h = hash(h, allBacteria.size());
+        for (int i = 0; i < allBacteria.size(); i++) {
+            Bacteria b = allBacteria.get(i);
+            if (b == null) {
+                continue;
+            }
+            h = hash(h, b.getType().ordinal());
+            h = hash(h, b.getX());
+            h = hash(h, b.getY());
+            h = hash(h, b.getHealth());
+            h = hash(h, b.getPopulation());
+            h = hash(h, b.getGrowth());
+            h = hash(h, b.getResistanceGenes());
+            h = hash(h, b.getValue());
+            h = hash(h, b.isOnScreen() ? 1 : 0);
+        }
+        h = hash(h, pills.size());
+        for (Pill pill : pills) {
+            h = hash(h, pill.getOrigin());
+            h = hash(h, Float.floatToIntBits(pill.getX()));
+            h = hash(h, Float.floatToIntBits(pill.getY()));
+            h = hash(h, pill.getTargetBacteria().getIndex());
+        }
+        return h;
+    }
+
+    private static long hash(long h, long value) {
+        return HashRandom.mix((h ^ value) + 0x9e3779b97f4a7c15L);
+    }
+
+    /**
+     * Get the cap on how many bacteria can be alive at once.
+     * @return
+     */
+    public int getMaxBacteria() {
+        return allBacteria.getMaxSize();
+    }
+
+    /**
+     * Set the cap on how many bacteria can be alive at once. Once it's
+     * reached, no more are added or born until some are killed.
+     * @param max
+     */
+    public void setMaxBacteria(int max) {
+        allBacteria.setMaxSize(max);
+    }
+
     /**
      * Get our inventory.
-     * @return The list of towers we've purchased.
+     * @return A copy of the towers we've purchased, safe to read from any thread.
      */
-    public ConcurrentHashMap<AntibioticType, Integer> getInventory() {
-        return this.inventory;
+    public Inventory getInventory() {
+        return shownInventory.copy();
     }
 
 
@@ -192,13 +735,7 @@ public class Game extends Observable {
      * @return
      */
     public void takeOutOfInventoryAndAdd(AntibioticType type, int position) {
-        if (this.inventory.get(type) > 1) {
-            this.inventory.put(type, this.inventory.get(type) - 1);
-        } else {
-            this.inventory.remove(type);
-        }
-        AntibioticTower tower = new AntibioticTower(type, position);
-        this.addTower(tower, position);
+        submit(new PlaceTower(type, position));
     }
 
     /**
@@ -207,36 +744,45 @@ public class Game extends Observable {
      * @param position Where we're putting the tower
      */
     public void buyTower(AntibioticType type, int position) {
-        AntibioticTower tower = new AntibioticTower(type, position);
-        this.addTower(tower, position);
-        this.money -= AntibioticType.getCost(type);
+        submit(new BuyTower(type, position));
     }
 
     /**
-     * Return the inventory as an arraylist of strings
-     * which indicates whether or not they've been placed
-     * in the game.
-     * @return
+     * Put a tower in a slot without paying for it or taking it out of the
+     * inventory, like for a scenario's starting layout.
+     * @param type
+     * @param position
      */
-    public ArrayList<String> getInventoryAsStrings() {
-        ArrayList<String> strInventory = new ArrayList<>();
-        for (AntibioticType t : this.inventory.keySet()) {
-            String type = AntibioticType.toString(t);
-            strInventory.add(type + ": " + this.inventory.get(t));
-        }
-        return strInventory;
+    public void placeTower(AntibioticType type, int position) {
+        submit(new SetTower(type, position));
+    }
+
+    /**
+     * Add a group of bacteria at the start of the path, like a wave in
+     * a scenario.
+     * @param type
+     * @param count
+     */
+    public void spawn(BacteriaType type, int count) {
+        submit(new Spawn(type, count));
+    }
+
+    /**
+     * Remove the tower at the specified location. Any target in its queue
+     * move on to the next tower.
+     * @param location
+     */
+    public void removeTower(int location) {
+        submit(new RemoveTower(location));
     }
 
     /**
      * Add a tower of the specified type to our inventory.
      * @param type The type of tower to add.
      */
-    public void addToInventory(AntibioticType type) {
-        if (this.inventory.containsKey(type)) {
-            this.inventory.put(type, this.inventory.get(type)+1);
-        } else {
-            this.inventory.put(type, 1);
-        }
+    private void addToInventory(AntibioticType type) {
+        inventory.add(type);
+        shownInventory = inventory.copy();
     }
 
     /**
@@ -245,75 +791,69 @@ public class Game extends Observable {
      * its list of target.
      *
      * @param tower The tower we're adding
-     * @return The updated list of towers in the game, null if location is invalid.
+     * @return False if location is invalid.
      */
-    public CopyOnWriteArrayList<AntibioticTower> addTower(AntibioticTower tower, int newLocation) {
+    private boolean addTower(AntibioticTower tower, int newLocation) {
         // Make sure location is valid
         if (newLocation > NUM_TOWERS - 1 || newLocation < 0) {
-            return null;
-        } else {
-            // Get rid of tower currently at that location if it exists
-            AntibioticTower oldTower = null;
-            if (!towers.isEmpty()) {
-                oldTower = towers.remove(newLocation);
-                if (oldTower != null) {
-                    addToInventory(oldTower.getType());
-
-                    // Stop shooting thread for this tower
-                    towerThreads.remove(newLocation);
-                    oldTower.setShooting(false);
-                }
-            }
+            return false;
+        }
 
-            // Make a new tower and add it to the list
-            towers.add(newLocation, tower);
-            towerThreads.add(newLocation, new TowerThread(tower));
+        // Get rid of tower currently at that location if it exists
+        AntibioticTower oldTower = towers[newLocation];
+        if (oldTower != null) {
+            addToInventory(oldTower.getType());
 
-            // Get any target that may have belonged to the tower previously in this
-            // location and remove it from the mapping
-            LinkedList<Bacteria> bacteriaList = new LinkedList<>();
-            if (oldTower != null) {
-                bacteriaList = (LinkedList<Bacteria>) bacteriaToTower.remove(oldTower);
-            }
+            // Stop this tower's cooldown
+            wheel.cancel(cooldowns[newLocation]);
+            towerReady[newLocation] = false;
+            oldTower.setShooting(false);
+        }
+
+        // Put the new tower in the slot, it can fire once its first
+        // cooldown is up
+        towers[newLocation] = tower;
+        cooldowns[newLocation] = new TowerCooldown(tower, newLocation);
+        wheel.schedule(cooldowns[newLocation], ticks(tower.getCooldown()));
+        if (!isPaused) {
+            tower.setShooting(true);
+        }
 
-            // Put the new tower in the mapping to its target
-            bacteriaToTower.put(tower, bacteriaList);
-            return towers;
+        // The new tower takes on any target the old one had lined up
+        if (queues[newLocation] == null) {
+            queues[newLocation] = new TargetQueue();
         }
+        return true;
     }
 
     /**
      * Removes the tower at the specified location, moving any
-     * target up to the next tower's queue, and inserts
-     * null in its place to maintain position of other towers.
+     * target up to the next tower's queue, and leaves the slot empty
+     * to maintain position of other towers.
      *
      * @param location The location of the tower to be removed.
-     * @return Null if location is invalid, otherwise the tower
+     * @return Null if location is invalid or empty, otherwise the tower
      * that was removed.
      */
-    public AntibioticTower removeTower(int location) {
-        if (location > NUM_TOWERS - 1 || location < 0) {
+    private AntibioticTower removeTowerAt(int location) {
+        if (location > NUM_TOWERS - 1 || location < 0 || towers[location] == null) {
             return null;
-        } else {
-            // Remove from list of towers & stop thread
-            AntibioticTower t = towers.remove(location);
-            towerThreads.remove(location);
-            t.setShooting(false);
-
-            // Move any target in its queue to next tower
-            Queue<Bacteria> queue = bacteriaToTower.remove(t);
-            if (queue != null) {
-                Bacteria[] bacteria = (Bacteria[]) queue.toArray();
-                for (int i = 0; i < bacteria.length; i++) {
-                    this.moveBacteriaToNextTower(t);
-                }
-            }
-
-            // Put null values in to maintain positions of other towers
-            towers.add(location, null);
-            towerThreads.add(location, null);
-            return t;
         }
+
+        // Take it out of its slot & stop its cooldown
+        AntibioticTower t = towers[location];
+        towers[location] = null;
+        wheel.cancel(cooldowns[location]);
+        cooldowns[location] = null;
+        towerReady[location] = false;
+        t.setShooting(false);
+
+        // Move the whole queue onto the end of the next tower's in one go,
+        // they're all behind the ones already there
+        TargetQueue queue = queues[location];
+        queues[location] = null;
+        queue.moveTo(nextQueue(location), queue.size());
+        return t;
     }
 
     /**
@@ -325,22 +865,43 @@ public class Game extends Observable {
      * @return True if the target was killed, false otherwise.
      */
     private boolean shootBacteria(AntibioticTower tower) {
-        Queue<Bacteria> bacteria = bacteriaToTower.get(tower);
+        TargetQueue bacteria = queues[tower.getLocation()];
         Bacteria first = bacteria.peek();
 
         if (first != null && tower.inRange(first.getX()) && !resistant(first, tower.getType())) {
             int health = first.getHealth();
-            int power = tower.getPower();
+
+            // A biofilm soaks up the dose before the target does
+            int power = effects.absorb(first.getIndex(), tower.getPower());
+            if (power == 0) {
+                return false;
+            }
+
+            // Every dose pushes toward resistance, surviving one even more so
+            resistanceModel.recordExposure(first.getType(), tower.getType(), power < health);
 
             if (power >= health) {
-                try {
-                    bacteria.remove();
-                } catch (NoSuchElementException e) {}
+                if (first.isColony()) {
+                    // Only one member of the colony dies, the rest are still the same
+                    first.setPopulation(first.getPopulation() - 1);
+                } else {
+                    bacteria.poll();
+                    allBacteria.remove(first);
+                }
                 //get a score bonus for killing a target
-                score += 15;
+                economy.credit(Economy.KILLS, 15, 0);
                 return true;
             } else {
+                if (first.isColony() && allBacteria.remaining() > 0) {
+                    // The member that got hit is different from the rest now, so
+                    // split it off and keep it at the front of the queue. If
+                    // there's no room for it, the whole colony takes the hit.
+                    first = first.split(1);
+                    bacteria.addFirst(first);
+                    allBacteria.add(first);
+                }
                 first.setHealth(health - power);
+                applyEffect(first, tower.getType());
                 return false;
             }
         }
@@ -348,100 +909,307 @@ public class Game extends Observable {
     }
 
     /**
-     * This method returns whether or not the specific target passed in
-     * is resistant to the antibiotic. There are several cases.
-     *
-     * Case 1: Bacteria type is already resistant to the antibiotic, and
-     * this individual one is too (aka not exempt). Return true.
-     *
-     * Case 2: Bacteria type is already resistant to the antibiotic, but this
-     * individual was created before they were all resistant. Run algorithm.
+     * Leave an antibiotic's status effect on a target that survived a dose of it.
      *
-     * Case 3: Bacteria type is not resistant at all. Run algorithm.
+     * @param bacteria The target that was hit.
+     * @param antibiotic The antibiotic it was hit with.
+     */
+    private void applyEffect(Bacteria bacteria, AntibioticType antibiotic) {
+        int kind = AntibioticType.getEffect(antibiotic);
+        if (kind >= 0) {
+            effects.apply(bacteria.getIndex(), kind, AntibioticType.getEffectStrength(antibiotic),
+                    AntibioticType.getEffectDuration(antibiotic));
+        }
+    }
+
+    /**
+     * Move every status effect along, and deal out any damage over time.
+     *
+     * @param millis How much game time has passed since the last time.
+     */
+    private void updateEffects(long millis) {
+        int n = effects.tick(millis, allBacteria, pool);
+        for (int i = 0; i < n; i++) {
+            damageBacteria(effects.getDamaged(i), effects.getDamage(i));
+        }
+    }
+
+    /**
+     * Damage a target that isn't being shot, like from damage over time.
+     * If it dies, take it out of whichever queue it's in.
+     *
+     * @param bacteria The target taking damage.
+     * @param damage How much damage.
+     */
+    private void damageBacteria(Bacteria bacteria, int damage) {
+        if (bacteria.getIndex() < 0) {
+            // Already dead
+            return;
+        }
+        damage = effects.absorb(bacteria.getIndex(), damage);
+        if (damage <= 0) {
+            return;
+        }
+        if (damage < bacteria.getHealth()) {
+            bacteria.setHealth(bacteria.getHealth() - damage);
+            return;
+        }
+
+        if (bacteria.isColony()) {
+            // Only one member of the colony dies
+            bacteria.setPopulation(bacteria.getPopulation() - 1);
+        } else {
+            removeFromQueues(bacteria);
+            allBacteria.remove(bacteria);
+        }
+        economy.credit(Economy.KILLS, 15, 0);
+    }
+
+    /**
+     * Take a target out of whichever tower's queue it's in, or out of the
+     * unassigned target.
+     *
+     * @param bacteria
+     */
+    private void removeFromQueues(Bacteria bacteria) {
+        for (TargetQueue queue : queues) {
+            if (queue != null && queue.remove(bacteria)) {
+                return;
+            }
+        }
+        unassignedBacteria.remove(bacteria);
+    }
+
+    /**
+     * Get how much a target is slowed by status effects, for moving it.
+     *
+     * @param bacteria
+     * @return Percent slower than normal.
+     */
+    public int getSlow(Bacteria bacteria) {
+        return effects.getSlow(bacteria.getIndex());
+    }
+
+    /**
+     * This method returns whether or not the specific target passed in
+     * is resistant to the antibiotic. There are two cases.
+     *
+     * Case 1: Bacteria type is resistant to the antibiotic, and this
+     * individual one is too (aka not exempt). Return true.
+     *
+     * Case 2: Bacteria type isn't resistant, or this individual was created
+     * before they were all resistant. Return false.
+     *
+     * If gene transfer is on, resistance belongs to each target instead.
+     * Whether resistance shows up at all is decided once a tick in
+     * {@link #evolveResistance()}.
      *
      * @param bacteria The target we're checking for resistance.
      * @param antibiotic The type of antibiotic we're checking for resistance to.
      * @return True if the target is resistant, false otherwise.
      */
     private boolean resistant(Bacteria bacteria, AntibioticType antibiotic) {
+        if (geneTransferEnabled) {
+            return bacteria.hasResistanceGene(antibiotic);
+        }
+
         // Check if this type of target is resistant to this type of antibiotic,
         // and if the specific target is not exempt from resistance
-        if (!resistances.isEmpty() && resistances.get(bacteria.getType()) != null &&
-                resistances.get(bacteria.getType()).contains(antibiotic) &&
-                !bacteria.isExempt(antibiotic)) {
-            return true;
-        } else {
-            // Run the algorithm to see if the target becomes resistant.
-            boolean nowResistant = this.resistanceAlgorithm(bacteria.getType(), antibiotic);
-
-            // Update various fields to reflect the new resistance
-            if (nowResistant) {
-                // Update local resistance data
-                if (resistances.get(bacteria.getType()) == null) {
-                    List list = new ArrayList<>();
-                    list.add(antibiotic);
-                    resistances.put(bacteria.getType(), list);
-                    String resistantStr = "";
-                    for (BacteriaType b : resistances.keySet()) {
-                        resistantStr += "bacteria: " + BacteriaType.getShortName(b);
-                        for (AntibioticType a : resistances.get(b)) {
-                            resistantStr += " " + AntibioticType.toString(a) + ",";
-                        }
-                    }
-                    Log.d("RESISTANCES", resistantStr);
-                } else {
-                    resistances.get(bacteria.getType()).add(antibiotic);
-                }
+        List<AntibioticType> list = resistances.get(bacteria.getType());
+        return list != null && list.contains(antibiotic) && !bacteria.isExempt(antibiotic);
+    }
 
-                // Mark any target of this type that are already created as being exempt
-                // to this antibiotic
-                for (AntibioticTower t : bacteriaToTower.keySet()) {
-                    Object obj[] = bacteriaToTower.get(t).toArray();
-                    for (int i = 0; i < obj.length; i++) {
-                        Bacteria b = (Bacteria) obj[i];
-                        if (b != null && b.getType().equals(bacteria.getType())) {
-                            b.setExempt(antibiotic);
-                        }
+    /**
+     * Use up the exposure built up since the last tick and see how many
+     * resistant mutants showed up for each target type and antibiotic.
+     * Normally any mutant makes the whole type resistant. With gene transfer
+     * on, only that many target get the gene.
+     */
+    private void evolveResistance() {
+        IdentityHashMap<Bacteria, Integer> colonySplits = null;
+        for (BacteriaType bacteriaType : BacteriaType.values()) {
+            for (AntibioticType antibiotic : AntibioticType.values()) {
+                int mutants = resistanceModel.draw(bacteriaType, antibiotic);
+                if (mutants == 0) {
+                    continue;
+                }
+                if (geneTransferEnabled) {
+                    colonySplits = seedResistanceGenes(bacteriaType, antibiotic, mutants, colonySplits);
+                } else {
+                    List<AntibioticType> list = resistances.get(bacteriaType);
+                    if (list == null || !list.contains(antibiotic)) {
+                        makeTypeResistant(bacteriaType, antibiotic);
                     }
                 }
+            }
+        }
+        if (colonySplits != null) {
+            splitColonies(colonySplits);
+        }
+    }
 
-                resistanceString = bacteria.getType() + " has become resistant to " +  antibiotic.toString();
-                // Call setChanged in Observable & notify observers
-                setChanged();
-                ObserverMessage msg = new ObserverMessage(ObserverMessage.RESISTANCE,
-                        bacteria.getType() + " has become resistant to " + antibiotic);
-                notifyObservers(msg);
-                return true;
-            } else {
-                return false;
+    /**
+     * Make every new target of a type resistant to an antibiotic. Target that
+     * already exist are marked exempt, so they stay how they were.
+     *
+     * @param bacteriaType The target type that became resistant.
+     * @param antibiotic The antibiotic it's resistant to.
+     */
+    private void makeTypeResistant(BacteriaType bacteriaType, AntibioticType antibiotic) {
+        // Update local resistance data
+        if (resistances.get(bacteriaType) == null) {
+            List list = new ArrayList<>();
+            list.add(antibiotic);
+            resistances.put(bacteriaType, list);
+        } else {
+            resistances.get(bacteriaType).add(antibiotic);
+        }
+
+        // Mark any target of this type that are already created as being exempt
+        // to this antibiotic
+        for (int i = 0; i < allBacteria.size(); i++) {
+            Bacteria b = allBacteria.get(i);
+            if (b != null && b.getType() == bacteriaType) {
+                b.setExempt(antibiotic);
             }
         }
+
+        announceResistance(bacteriaType, antibiotic);
     }
 
     /**
-     * Run to determine if the target type will become resistant to the
-     * antibiotic type.
+     * Give a resistance gene to some random target of a type that don't have
+     * it yet. Used when gene transfer is on.
      *
-     * @param bacteriaType The target type we're checking.
-     * @param antibiotic The antibiotic type we're checking.
-     * @return True if resistant, false otherwise.
+     * @param bacteriaType The target type that mutated.
+     * @param antibiotic The antibiotic the mutants are resistant to.
+     * @param mutants How many target mutated.
+     * @param colonySplits Colonies waiting to have a member split off, may be null.
+     * @return The colonies waiting to have a member split off, may be null.
      */
-    private boolean resistanceAlgorithm(BacteriaType bacteriaType, AntibioticType antibiotic) {
-        double chance = 0;
-        switch (antibiotic) {
-            case penicillin:
-                chance = 0.03;
-                //chance = 0.9;
-                break;
-            case vancomycin:
-                chance = 0.01;
-                break;
-            case linezolid:
-                chance = 0.008;
+    private IdentityHashMap<Bacteria, Integer> seedResistanceGenes(BacteriaType bacteriaType,
+            AntibioticType antibiotic, int mutants, IdentityHashMap<Bacteria, Integer> colonySplits) {
+        int bit = 1 << antibiotic.ordinal();
+        int given = 0;
+        for (int tries = 0; given < mutants && tries < mutants * 8; tries++) {
+            int size = allBacteria.size();
+            if (size == 0) {
                 break;
+            }
+            Bacteria b = allBacteria.get(random.nextInt(size));
+            if (b != null && b.getType() == bacteriaType && !b.hasResistanceGene(antibiotic)) {
+                colonySplits = giveGenes(b, bit, colonySplits);
+                given++;
+            }
         }
 
-        return Math.random() <= chance;
+        // Only tell the player the first time this resistance shows up
+        int type = bacteriaType.ordinal();
+        if (given > 0 && (emergedResistance[type] & bit) == 0) {
+            emergedResistance[type] |= bit;
+            announceResistance(bacteriaType, antibiotic);
+        }
+        return colonySplits;
+    }
+
+    /**
+     * Give resistance genes to a target. A single target just picks them up.
+     * A colony has to split a member off to pick them up, since it'll be
+     * different from the rest, so it waits in colonySplits until then.
+     *
+     * @param recipient The target getting the genes.
+     * @param genes The genes, one bit per antibiotic ordinal.
+     * @param colonySplits Colonies waiting to have a member split off, may be null.
+     * @return The colonies waiting to have a member split off, may be null.
+     */
+    private IdentityHashMap<Bacteria, Integer> giveGenes(Bacteria recipient, int genes,
+            IdentityHashMap<Bacteria, Integer> colonySplits) {
+        if (recipient.isColony()) {
+            if (colonySplits == null) {
+                colonySplits = new IdentityHashMap<>();
+            }
+            Integer pending = colonySplits.get(recipient);
+            colonySplits.put(recipient, pending == null ? genes : pending | genes);
+        } else {
+            recipient.setResistanceGenes(recipient.getResistanceGenes() | genes);
+        }
+        return colonySplits;
+    }
+
+    /**
+     * Let the player know a type of target has become resistant.
+     *
+     * @param bacteriaType The target type that became resistant.
+     * @param antibiotic The antibiotic it's resistant to.
+     */
+    private void announceResistance(BacteriaType bacteriaType, AntibioticType antibiotic) {
+        resistanceString = bacteriaType + " has become resistant to " +  antibiotic.toString();
+        // Call setChanged in Observable & notify observers
+        setChanged();
+        ObserverMessage msg = new ObserverMessage(ObserverMessage.RESISTANCE,
+                bacteriaType + " has become resistant to " + antibiotic);
+        notifyObservers(msg);
+    }
+
+    /**
+     * Pass resistance genes between target that are close together. Single
+     * target just pick up the genes. For a colony, one member splits off
+     * right behind it and picks them up, since it's different from the rest now.
+     */
+    private void transferGenes() {
+        int n = geneTransfer.tick(allBacteria, pool);
+        IdentityHashMap<Bacteria, Integer> colonySplits = null;
+        for (int i = 0; i < n; i++) {
+            colonySplits = giveGenes(geneTransfer.getRecipient(i), geneTransfer.getGenes(i), colonySplits);
+        }
+        if (colonySplits != null) {
+            splitColonies(colonySplits);
+        }
+    }
+
+    /**
+     * Split one member off each colony waiting for it, and give it the genes
+     * the colony was supposed to get. The member goes right behind its colony.
+     *
+     * @param colonySplits Colonies waiting to split, and the genes to give.
+     */
+    private void splitColonies(IdentityHashMap<Bacteria, Integer> colonySplits) {
+        // Find each colony in its queue so the new member can go right behind it
+        for (TargetQueue queue : queues) {
+            if (queue != null && !colonySplits.isEmpty()) {
+                splitColonies(queue, colonySplits);
+            }
+        }
+        if (!colonySplits.isEmpty()) {
+            splitColonies(unassignedBacteria, colonySplits);
+        }
+    }
+
+    /**
+     * Split the colonies waiting for it in one queue, putting each new
+     * member right behind its colony.
+     *
+     * @param queue
+     * @param colonySplits Colonies waiting to split, and the genes to give.
+     */
+    private void splitColonies(TargetQueue queue, IdentityHashMap<Bacteria, Integer> colonySplits) {
+        int split = 0;
+        for (int i = 0; i < queue.size(); i++) {
+            Bacteria b = queue.get(i);
+            spareQueue.add(b);
+            Integer genes = colonySplits.remove(b);
+            if (genes != null && b.isColony() && allBacteria.remaining() > 0) {
+                Bacteria member = b.split(1);
+                member.setResistanceGenes(member.getResistanceGenes() | genes);
+                spareQueue.add(member);
+                allBacteria.add(member);
+                split++;
+            }
+        }
+        if (split > 0) {
+            queue.swap(spareQueue);
+        }
+        spareQueue.clear();
     }
 
     /**
@@ -451,70 +1219,362 @@ public class Game extends Observable {
      * @param type The type of target to be added to the game.
      */
     private void addBacteria(BacteriaType type) {
-        // Create the new target
-        Bacteria bacteria = new Bacteria(type, 1);
+        addBacteria(type, 1);
+    }
 
-        // Add it to the first tower's queue
-        if (towers.size() > 0 && towers.get(0) != null) {
-            AntibioticTower firstTower = towers.get(0);
-            bacteriaToTower.get(firstTower).add(bacteria);
+    /**
+     * Add several new target of the specified type to the end of the
+     * first tower's queue. If colonies are on they're added as one colony.
+     *
+     * @param type The type of target to be added to the game.
+     * @param count How many to add.
+     */
+    private void addBacteria(BacteriaType type, int count) {
+        if (coloniesEnabled) {
+            Bacteria colony = new Bacteria(type, 1);
+            colony.setPopulation(count);
+            addToFirstQueue(colony);
         } else {
-            unassignedBacteria.add(bacteria);
+            for (int i = 0; i < count; i++) {
+                addToFirstQueue(new Bacteria(type, 1));
+            }
         }
     }
 
     /**
-     * Remove the target at the head of the queue for the specified
-     * tower, then find the next sequential tower and add the target
-     * to that tower's queue.
+     * Add a target to the end of the first tower's queue, or to the
+     * unassigned target if there's no first tower. If colonies are on and
+     * the last one in line is identical and in the same spot, join it instead.
      *
-     * @param tower The tower that the target is being moved away from.
+     * @param bacteria The target to add.
      */
-    private void moveBacteriaToNextTower(AntibioticTower tower) {
-        Bacteria bacteria = bacteriaToTower.get(tower).remove();
-        int nextIndex = towers.indexOf(tower) + 1;
+    private void addToFirstQueue(Bacteria bacteria) {
+        if (towers[0] != null) {
+            TargetQueue queue = queues[0];
+            Bacteria last = queue.peekLast();
+            if (coloniesEnabled && last != null && last.canMergeWith(bacteria)) {
+                last.merge(bacteria);
+            } else if (allBacteria.add(bacteria)) {
+                queue.add(bacteria);
+                addBiofilm(bacteria);
+            }
+        } else {
+            Bacteria last = unassignedBacteria.peekLast();
+            if (coloniesEnabled && last != null && last.canMergeWith(bacteria)) {
+                last.merge(bacteria);
+            } else if (allBacteria.add(bacteria)) {
+                unassignedBacteria.add(bacteria);
+                addBiofilm(bacteria);
+            }
+        }
+    }
 
-        if (!(nextIndex > towers.size()-1)) {
-            AntibioticTower next = towers.get(nextIndex);
-            if (next != null) {
-                bacteriaToTower.get(next).add(bacteria);
+    /**
+     * Fold bacteria that have ended up in the same spot into colonies, like
+     * ones that caught up with slowed bacteria ahead of them. A queue is one
+     * stretch of the path in order, so only next-door neighbours in the
+     * same queue are checked.
+     */
+    private void mergeNeighbours() {
+        if (!coloniesEnabled) {
+            return;
+        }
+        for (TargetQueue queue : queues) {
+            if (queue != null) {
+                mergeNeighbours(queue);
+            }
+        }
+        mergeNeighbours(unassignedBacteria);
+    }
+
+    /**
+     * Merge each bacteria in a queue into the one ahead of it if they can be.
+     *
+     * @param queue
+     */
+    private void mergeNeighbours(TargetQueue queue) {
+        int i = 0;
+        while (i < queue.size() - 1) {
+            Bacteria ahead = queue.get(i);
+            Bacteria behind = queue.get(i + 1);
+            if (ahead.canMergeWith(behind) && sameEffects(ahead, behind)) {
+                ahead.merge(behind);
+                queue.remove(behind);
+                allBacteria.remove(behind);
             } else {
-                unassignedBacteria.add(bacteria);
+                i++;
             }
-        } else {
-            unassignedBacteria.add(bacteria);
         }
     }
 
     /**
-     * Start the thread for the specified tower so that it shoots
-     * at the target in its range - check first that it hasn't
-     * already been started. Set the flag to indicate that the
-     * thread should execute.
+     * Check if two bacteria are under the same status effects, so a colony
+     * of both behaves like either. How long the effects have left isn't
+     * compared, the colony keeps the one ahead's.
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    private boolean sameEffects(Bacteria a, Bacteria b) {
+        int ia = a.getIndex();
+        int ib = b.getIndex();
+        return effects.getSlow(ia) == effects.getSlow(ib)
+                && effects.has(ia, StatusEffects.DAMAGE_OVER_TIME) == effects.has(ib, StatusEffects.DAMAGE_OVER_TIME)
+                && effects.has(ia, StatusEffects.SHIELD) == effects.has(ib, StatusEffects.SHIELD);
+    }
+
+    /**
+     * Give a new target the biofilm its type starts with, if any.
+     *
+     * @param bacteria
+     */
+    private void addBiofilm(Bacteria bacteria) {
+        int shield = BacteriaType.getBiofilm(bacteria.getType());
+        if (shield > 0) {
+            effects.apply(bacteria.getIndex(), StatusEffects.SHIELD, shield, BIOFILM_DURATION);
+        }
+    }
+
+    /**
+     * Let every target divide based on how much time has passed. Offspring
+     * are added to the same queue as their parent, all in one go.
+     *
+     * @param millis How much game time has passed since the last time.
+     */
+    private void growBacteria(long millis) {
+        // Work out how many more can be born without going over the cap
+        long population = 0;
+        for (int i = 0; i < allBacteria.size(); i++) {
+            Bacteria b = allBacteria.get(i);
+            if (b != null) {
+                population += b.getPopulation();
+            }
+        }
+        long room = allBacteria.getMaxSize() - population;
+        if (!coloniesEnabled) {
+            room = Math.min(room, allBacteria.remaining());
+        }
+
+        growth.beginTick(millis, (int) Math.max(0, room), coloniesEnabled);
+        for (TargetQueue queue : queues) {
+            if (queue != null) {
+                growth.growQueue(queue);
+            }
+        }
+        growth.growQueue(unassignedBacteria);
+        growth.endTick(allBacteria);
+    }
+
+    /**
+     * Remove target from the head of the queue for the specified
+     * tower, then find the next sequential tower and add the target
+     * to the end of that tower's queue, all in one go.
+     *
+     * @param tower The tower that the target is being moved away from.
+     * @param count How many to move.
+     */
+    private void moveBacteriaToNextTower(AntibioticTower tower, int count) {
+        queues[tower.getLocation()].moveTo(nextQueue(tower.getLocation()), count);
+    }
+
+    /**
+     * Get the queue target go to once they leave a slot: the queue of the
+     * tower in the slot after it, or the unassigned target if that slot is empty.
+     *
+     * @param location
+     * @return
+     */
+    private TargetQueue nextQueue(int location) {
+        int next = location + 1;
+        return next < NUM_TOWERS && towers[next] != null ? queues[next] : unassignedBacteria;
+    }
+
+    /**
+     * Let the specified tower shoot at the target in its range whenever
+     * its cooldown is up - check first that its cooldown is on the wheel.
      *
      * @param tower The tower that will begin shooting.
      */
     private void activateTower(AntibioticTower tower) {
         if (tower != null) {
             tower.setShooting(true);
-            int index = towers.indexOf(tower);
-            TowerThread t = towerThreads.get(index);
-            if (t != null && !t.isAlive()) {
-                t.start();
+            TowerCooldown cooldown = cooldowns[tower.getLocation()];
+            if (cooldown != null && !cooldown.isScheduled()) {
+                wheel.schedule(cooldown, ticks(tower.getCooldown()));
             }
         }
     }
 
     /**
-     * Start a thread to begin adding target to the game -
-     * first check that it hasn't been started yet. Set the flag
-     * to indicate that the thread should execute.
+     * Move the game forward, running everything that comes due on the
+     * timing wheel. Time that doesn't make up a whole wheel tick is saved
+     * for next time. Any changes the UI asked for are made first.
+     *
+     * @param millis How much game time has passed.
+     */
+    public void advance(long millis) {
+        runCommands();
+        clockMillis += millis;
+        if (isPaused) {
+            return;
+        }
+        pendingMillis += millis;
+        long ticks = pendingMillis / TICK_MILLIS;
+        pendingMillis -= ticks * TICK_MILLIS;
+
+        // Stop on the tick the game is lost, however big a step this was,
+        // so it ends the same way when it's replayed in different steps
+        for (long i = 0; i < ticks && !isPaused; i++) {
+            wheel.advance(1);
+        }
+    }
+
+    /**
+     * Get how many wheel ticks a length of time takes, rounding up.
+     *
+     * @param millis
+     * @return
+     */
+    private static long ticks(long millis) {
+        return (millis + TICK_MILLIS - 1) / TICK_MILLIS;
+    }
+
+    /**
+     * Add the next target to the game. If score is under 2000, always add staph.
+     * If it's over 2000 but under 4000, split between staph and strep, and over
+     * 4000, split between all three.
+     */
+    private void spawnBacteria() {
+        int score = economy.getScore();
+        BacteriaType type;
+        if (score < 2000) {
+            type = BacteriaType.staph;
+        } else if (score < 4000) {
+            type = random.nextDouble() < .5 ? BacteriaType.staph : BacteriaType.strep;
+        } else {
+            type = random.nextDouble() < .33 ? BacteriaType.staph :
+                    random.nextDouble() < .5 ? BacteriaType.strep : BacteriaType.pneumonia;
+        }
+        addBacteria(type);
+    }
+
+    /**
+     * Check if the head of each tower's queue is out of range, if so, move it
+     * and any others right behind it that are out of range to next tower.
+     * Give any unassigned target that are now in a tower's range to that tower.
+     */
+    private void assignBacteria() {
+        for (AntibioticTower t : towers) {
+            if (t == null) {
+                continue;
+            }
+            TargetQueue queue = queues[t.getLocation()];
+            int out = 0;
+            while (out < queue.size() && !t.inRange(queue.get(out).getX())) {
+                out++;
+            }
+            if (out > 0) {
+                moveBacteriaToNextTower(t, out);
+            }
+            // Keep the rest in order while pulling out the ones in range
+            int taken = 0;
+            for (int i = 0; i < unassignedBacteria.size(); i++) {
+                Bacteria b = unassignedBacteria.get(i);
+                if (t.inRange(b.getX())) {
+                    queue.add(b);
+                    taken++;
+                } else {
+                    spareQueue.add(b);
+                }
+            }
+            if (taken > 0) {
+                unassignedBacteria.swap(spareQueue);
+            }
+            spareQueue.clear();
+        }
+    }
+
+    /**
+     * Move a target along the path, starting it off the right side of the
+     * screen if it's new.
+     *
+     * @param bacteria
+     * @param millis How much game time has passed.
+     */
+    private void moveAlongPath(Bacteria bacteria, long millis) {
+        if (!bacteria.isInitialPositionSet()) {
+            bacteria.setX(width + 10);
+            bacteria.setY(height / 3 - 70);
+            bacteria.setInitialPositionSet(true);
+        }
+        int moveDownPoint = width/2-70;
+        int moveLeftAgainPoint = (height/3)*2 - 70;
+        // Bacteriostatic antibiotics slow them down
+        int speed = (int) (BACTERIA_SPEED * millis / 1000) * (100 - effects.getSlow(bacteria.getIndex())) / 100;
+        // Keep going until it's all the way past -100, where it counts as off the screen
+        if (bacteria.getX() >= -100) {
+            if ((bacteria.getX() > moveDownPoint && bacteria.getY() < 375) || bacteria.getY() > moveLeftAgainPoint) {
+                bacteria.setX(bacteria.getX() - speed);
+            } else {
+                bacteria.setY(bacteria.getY() + speed);
+            }
+        } else {
+            bacteria.setOnScreen(false);
+        }
+    }
+
+    /**
+     * Shoot a tower that's ready, and send a pill flying from it toward
+     * whatever it shot at.
+     *
+     * @param tower
+     */
+    private void fireTower(AntibioticTower tower) {
+        Bacteria target = queues[tower.getLocation()].peek();
+        shootBacteria(tower);
+        if (target == null) {
+            return;
+        }
+        Pill pill = null;
+        switch (tower.getLocation()) {
+            case 0:
+                pill = new Pill(width - 300, 200, target, 0);
+                break;
+            case 1:
+                pill = new Pill((width/4)*3 - 300, 200, target, 1);
+                break;
+            case 2:
+                pill = new Pill((width/4)*3 - 300, 450, target, 2);
+                break;
+            case 3:
+                pill = new Pill(width/2 - 300, 450, target, 3);
+                break;
+            case 4:
+                pill = new Pill(width/4 - 300, 450, target, 4);
+                break;
+        }
+        if (pill != null) {
+            pills.add(pill);
+        }
+    }
+
+    /**
+     * Check if a pill is done, because its target is gone or it's flown
+     * past the vein. A target that's been killed or merged into a colony
+     * is out of the store, so its index is -1.
+     *
+     * @param pill
+     * @return True if it should be removed.
      */
-    private void startAddingBacteria() {
-        this.addingBacteria = true;
-        if (!bacteriaThread.isAlive()) {
-            bacteriaThread.start();
+    private boolean pillFinished(Pill pill) {
+        Bacteria target = pill.getTargetBacteria();
+        if (target == null || target.getIndex() < 0 || !target.isOnScreen()) {
+            return true;
         }
+        return (pill.getOrigin() == 2 && pill.getX() < width/2-80) ||
+                ((pill.getOrigin() == 0 || pill.getOrigin() == 1)  && pill.getY() > (height/3)) ||
+                ((pill.getOrigin() == 3 || pill.getOrigin() == 4)  && pill.getY() > (height/3)*2);
     }
 
     /**
@@ -522,7 +1582,7 @@ public class Game extends Observable {
      * @return current game score
      */
     public int getScore() {
-        return score;
+        return economy.getScore();
     }
 
     /**
@@ -530,7 +1590,15 @@ public class Game extends Observable {
      * @return current money in game
      */
     public int getMoney() {
-        return this.money;
+        return economy.getMoney();
+    }
+
+    /**
+     * Get the score and money broken down by where they came from, for stats.
+     * @return
+     */
+    public Economy getEconomy() {
+        return economy;
     }
 
     /**
@@ -542,84 +1610,430 @@ public class Game extends Observable {
     }
 
     /**
-     * Thread to shoot the tower.
+     * Buy a tower and put it in a slot.
+     */
+    private class BuyTower extends GameCommand {
+        private final AntibioticType type;
+        private final int position;
+
+        private BuyTower(AntibioticType type, int position) {
+            this.type = type;
+            this.position = position;
+        }
+
+        @Override
+        public void run() {
+            if (addTower(new AntibioticTower(type, position, width), position)) {
+                economy.credit(Economy.PURCHASES, 0, -AntibioticType.getCost(type));
+                economy.commit();
+            }
+        }
+
+        @Override
+        public String describe() {
+            return "buy " + position + " " + type.name();
+        }
+    }
+
+    /**
+     * Take a tower out of the inventory and put it in a slot.
+     */
+    private class PlaceTower extends GameCommand {
+        private final AntibioticType type;
+        private final int position;
+
+        private PlaceTower(AntibioticType type, int position) {
+            this.type = type;
+            this.position = position;
+        }
+
+        @Override
+        public void run() {
+            if (!inventory.take(type)) {
+                // Already placed the last one
+                return;
+            }
+            shownInventory = inventory.copy();
+            addTower(new AntibioticTower(type, position, width), position);
+        }
+
+        @Override
+        public String describe() {
+            return "place " + position + " " + type.name();
+        }
+    }
+
+    /**
+     * Put a tower in a slot for free.
+     */
+    private class SetTower extends GameCommand {
+        private final AntibioticType type;
+        private final int position;
+
+        private SetTower(AntibioticType type, int position) {
+            this.type = type;
+            this.position = position;
+        }
+
+        @Override
+        public void run() {
+            addTower(new AntibioticTower(type, position, width), position);
+        }
+    }
+
+    /**
+     * Add a group of bacteria.
+     */
+    private class Spawn extends GameCommand {
+        private final BacteriaType type;
+        private final int count;
+
+        private Spawn(BacteriaType type, int count) {
+            this.type = type;
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            addBacteria(type, count);
+        }
+
+        @Override
+        public String describe() {
+            return "wave " + type.name() + " " + count;
+        }
+    }
+
+    /**
+     * Take the tower out of a slot.
+     */
+    private class RemoveTower extends GameCommand {
+        private final int location;
+
+        private RemoveTower(int location) {
+            this.location = location;
+        }
+
+        @Override
+        public void run() {
+            removeTowerAt(location);
+        }
+
+        @Override
+        public String describe() {
+            return "remove " + location;
+        }
+    }
+
+    /**
+     * Pause the game.
+     */
+    private class Pause extends GameCommand {
+        @Override
+        public void run() {
+            pause();
+        }
+
+        @Override
+        public String describe() {
+            return "pause";
+        }
+    }
+
+    /**
+     * Start over with a new game.
+     */
+    private class Reset extends GameCommand {
+        @Override
+        public void run() {
+            clearGame();
+        }
+    }
+
+    /**
+     * Start the game back up.
+     */
+    private class Resume extends GameCommand {
+        @Override
+        public void run() {
+            resume();
+        }
+
+        @Override
+        public String describe() {
+            return "resume";
+        }
+    }
+
+    /**
+     * A tower's cooldown. When it's up the tower shoots, and it starts over.
      */
-    private class TowerThread extends Thread {
-        /** The tower that this thread has been started for. */
+    private class TowerCooldown extends TimedAction {
+        /** The tower that this cooldown is for. */
         AntibioticTower tower;
 
+        /** Where the tower is. */
+        int location;
+
         /**
          * Constructor.
          * @param tower The tower that will be shooting.
+         * @param location Where the tower is.
          */
-        private TowerThread(AntibioticTower tower) {
+        private TowerCooldown(AntibioticTower tower, int location) {
             this.tower = tower;
+            this.location = location;
         }
 
         /**
-         * Shoot at the target once every second.
+         * Let the tower fire on the next systems tick, and wait for its
+         * cooldown again.
          */
         @Override
-        public void run() {
-            while (tower.getShooting()) {
-                tower.setAddPill(true);
-                shootBacteria(tower);
-                try {
-                    sleep(1000);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        public void run(TimingWheel wheel) {
+            if (tower.getShooting()) {
+                towerReady[location] = true;
             }
+            wheel.schedule(this, ticks(tower.getCooldown()));
+        }
+    }
+
+    /**
+     * Add a new target every so often.
+     */
+    private class SpawnTick extends TimedAction {
+        @Override
+        public void run(TimingWheel wheel) {
+            if (autoSpawn) {
+                spawnBacteria();
+            }
+            wheel.schedule(this, ticks(SPAWN_TICK));
+        }
+    }
+
+    /**
+     * Add to score and money every so often while the game is running.
+     */
+    private class IncomeTick extends TimedAction {
+        @Override
+        public void run(TimingWheel wheel) {
+            economy.credit(Economy.TIME, 100, 1);
+            economy.commit();
+            wheel.schedule(this, ticks(INCOME_TICK));
+        }
+    }
+
+    /**
+     * Run every system once.
+     */
+    private class SystemsTick extends TimedAction {
+        @Override
+        public void run(TimingWheel wheel) {
+            systems.update(SYSTEMS_TICK);
+            // Everything killed this tick gets paid out together
+            economy.commit();
+            wheel.schedule(this, ticks(SYSTEMS_TICK));
         }
     }
 
     /**
-     * Thread to add target and move them between towers as necessary.
+     * Moves the target along the path, and the pills toward them.
      */
-    private class BacteriaThread extends Thread {
+    private class MovementSystem implements GameSystem, WorkerPool.RangeTask {
+        /** How long the current tick is. */
+        private long millis;
+
+        @Override
+        public String getName() {
+            return "movement";
+        }
+
+        @Override
+        public void update(long millis) {
+            if (width == 0) {
+                // No path yet
+                return;
+            }
+            // Every bacteria moves on its own, so big swarms are split across threads
+            this.millis = millis;
+            pool.forRange(allBacteria.size(), MOVEMENT_GRAIN, this);
+
+            float distance = PILL_SPEED * millis / 1000;
+            for (Pill pill : pills) {
+                pill.updatePosition(distance);
+            }
+        }
+
         /**
-         * Add a target every second. Check if the head of each tower's queue
-         * is out of range, if so, move it to next tower.
+         * Move the bacteria between two store indices.
          */
         @Override
-        public void run() {
-            while (addingBacteria) {
-                //Add to score once a second while game is running (aka target is being added)
-                score += 100;
-                money++;
-
-                // If score is under 2000, always add staph. If it's over 2000 but under 4000,
-                // split between staph and strep, and over 4000, split between all three
-                BacteriaType type;
-                if (score < 2000) {
-                    type = BacteriaType.staph;
-                } else if (score < 4000) {
-                    type = Math.random() < .5 ? BacteriaType.staph : BacteriaType.strep;
-                } else {
-                    type = Math.random() < .33 ? BacteriaType.staph :
-                            Math.random() < .5 ? BacteriaType.strep : BacteriaType.pneumonia;
+        public void run(int chunk, int from, int to) {
+            for (int i = from; i < to; i++) {
+                Bacteria b = allBacteria.get(i);
+                if (b != null) {
+                    moveAlongPath(b, millis);
                 }
-                addBacteria(type);
+            }
+        }
+    }
 
-                // Move the bacteria as needed
-                for (AntibioticTower t : towers) {
-                    if (t != null && bacteriaToTower.get(t).peek() != null && !t.inRange(bacteriaToTower.get(t).peek().getX())) {
-                        moveBacteriaToNextTower(t);
+    /**
+     * Hands target from tower to tower as they move out of range.
+     */
+    private class TargetingSystem implements GameSystem {
+        @Override
+        public String getName() {
+            return "targeting";
+        }
+
+        @Override
+        public void update(long millis) {
+            assignBacteria();
+            mergeNeighbours();
+        }
+    }
+
+    /**
+     * Fires every tower that's off cooldown, and deals out damage from
+     * status effects.
+     */
+    private class DamageSystem implements GameSystem {
+        @Override
+        public String getName() {
+            return "damage";
+        }
+
+        @Override
+        public void update(long millis) {
+            updateEffects(millis);
+            for (int i = 0; i < NUM_TOWERS; i++) {
+                AntibioticTower tower = towers[i];
+                if (towerReady[i] && tower != null) {
+                    towerReady[i] = false;
+                    fireTower(tower);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets the target divide, once every bacteria tick.
+     */
+    private class GrowthSystem implements GameSystem {
+        /** Game time since it last ran. */
+        private long elapsed;
+
+        @Override
+        public String getName() {
+            return "growth";
+        }
+
+        @Override
+        public void update(long millis) {
+            elapsed += millis;
+            if (elapsed >= BACTERIA_TICK) {
+                elapsed -= BACTERIA_TICK;
+                if (reproductionEnabled) {
+                    growBacteria(BACTERIA_TICK);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets resistance show up and spread, once every bacteria tick.
+     */
+    private class ResistanceSystem implements GameSystem {
+        /** Game time since it last ran. */
+        private long elapsed;
+
+        @Override
+        public String getName() {
+            return "resistance";
+        }
+
+        @Override
+        public void update(long millis) {
+            elapsed += millis;
+            if (elapsed >= BACTERIA_TICK) {
+                elapsed -= BACTERIA_TICK;
+                evolveResistance();
+                if (geneTransferEnabled) {
+                    transferGenes();
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears away finished pills and checks if a target got past the towers.
+     */
+    private class CleanupSystem implements GameSystem {
+        @Override
+        public String getName() {
+            return "cleanup";
+        }
+
+        @Override
+        public void update(long millis) {
+            List<Pill> finished = null;
+            for (Pill pill : pills) {
+                if (pillFinished(pill)) {
+                    if (finished == null) {
+                        finished = new ArrayList<>();
                     }
-                    for (Bacteria b : unassignedBacteria) {
-                        if (t != null && t.inRange(b.getX())) {
-                            unassignedBacteria.remove(b);
-                            bacteriaToTower.get(t).add(b);
-                        }
+                    finished.add(pill);
+                }
+            }
+            if (finished != null) {
+                pills.removeAll(finished);
+            }
+            if (width > 0) {
+                checkForLoss();
+            }
+        }
+    }
+
+    /**
+     * Thread that moves the timing wheel along in real time. This one thread
+     * runs every system and timer, however many towers there are, and is the
+     * only one that changes the game.
+     */
+    private class SimulationThread extends Thread {
+        private SimulationThread() {
+            super("Simulation");
+            setDaemon(true);
+        }
+
+        /**
+         * Advance the game by however much time has passed, once every wheel
+         * tick. While paused, just wait for commands.
+         */
+        @Override
+        public void run() {
+            long last = System.nanoTime();
+            while (!quit) {
+                if (isPaused) {
+                    runCommands();
+                    if (isPaused && commands.isEmpty()) {
+                        // Submitting a command or quitting wakes us back up
+                        LockSupport.park(this);
                     }
+                    last = System.nanoTime();
+                    continue;
                 }
                 try {
-                    sleep(1000);
+                    sleep(TICK_MILLIS);
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
+                long now = System.nanoTime();
+                long millis = (now - last) / 1000000;
+                last += millis * 1000000;
+                advance(Math.min(millis, MAX_CATCH_UP));
             }
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package cisgvsu.biotowerdefense;
+
+/**
+ * A change to the game asked for from outside the simulation, like buying a
+ * tower or pausing. Commands wait in a {@link CommandQueue} until the
+ * simulation thread gets to them between ticks, so only that one thread
+ * ever changes the game. Commands link straight into the queue, so a
+ * command can only be submitted once.
+ */
+public abstract class GameCommand {
+    /** The command submitted after this one. */
+    volatile GameCommand next;
+
+    /**
+     * Make the change. Runs on the simulation thread, between ticks.
+     */
+    public abstract void run();
+
+    /**
+     * Get how the command is written in a recorded session, as a
+     * {@link Scenario} event like "buy 1 penicillin".
+     * @return Null if it isn't part of what the player did.
+     */
+    public String describe() {
+        return null;
+    }
+}
@@ -3,28 +3,32 @@ package cisgvsu.biotowerdefense;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Point;
 import android.util.AttributeSet;
 import android.view.Display;
+import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.view.WindowManager;
 
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Arrays;
 
 /**
  * This class does all the drawing of the bacteria, the pills, and
- * the path for the bacteria..
+ * the path for the bacteria.. It also draws the store and inventory
+ * overlay when a tower slot is tapped.
  */
 public class GameSurfaceView extends SurfaceView {
 
     private DrawingThread thread;
     private Context context;
     private Game game;
+    private int screenWidth;
+    private int screenHeight;
+    private PlacementOverlay overlay;
 
     /**
      * Constructor.
@@ -45,8 +49,9 @@ public class GameSurfaceView extends SurfaceView {
     }
 
     /**
-     * Get the size of the screen, scale background appropriately. Also create  bitmaps
-     * from all the image resources, and set up the drawing thread.
+     * Get the size of the screen and set up the drawing thread. The
+     * background and the sprite atlas are loaded in the background, and
+     * the thread starts drawing them once they're ready.
      * @param context
      */
     private void init(Context context) {
@@ -56,38 +61,37 @@ public class GameSurfaceView extends SurfaceView {
         Point size = new Point();
         display.getSize(size);
 
-        int screenHeight = Resources.getSystem().getDisplayMetrics().heightPixels;
-        int screenWidth = Resources.getSystem().getDisplayMetrics().widthPixels;
+        screenHeight = Resources.getSystem().getDisplayMetrics().heightPixels;
+        screenWidth = Resources.getSystem().getDisplayMetrics().widthPixels;
 
-        // Get the bitmaps that we'll draw
-        Bitmap bg = BitmapFactory.decodeResource(getResources(), R.drawable.bg);
-        Bitmap pill = BitmapFactory.decodeResource(getResources(), R.drawable.pill);
+        // The drawing thread is started once and lives as long as the view,
+        // it just waits whenever there's no surface to draw on
+        overlay = new PlacementOverlay(screenWidth, screenHeight);
+        thread = new DrawingThread(overlay, screenWidth, screenHeight);
+        thread.start();
 
-        // Scale the background
-        bg = Bitmap.createScaledBitmap(bg, screenWidth, screenHeight, false);
-
-        thread = new DrawingThread(getHolder(), bg, pill, screenWidth, screenHeight);
+        // Get the bitmaps that we'll draw. The background is opaque, so it
+        // can be half the size.
+        final BitmapCache bitmaps = ((BioTowerDefense) context.getApplicationContext()).getBitmapCache();
+        bitmaps.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bg = bitmaps.getScaled(R.drawable.bg, screenWidth, screenHeight, true);
+                thread.setAssets(bg, new SpriteAtlas(bitmaps));
+            }
+        });
 
         // Set up SurfaceHolder for drawing
         SurfaceHolder holder = getHolder();
         holder.addCallback(new SurfaceHolder.Callback() {
             @Override
             public void surfaceDestroyed(SurfaceHolder holder) {
-                thread.setRunnable(false);
-                while(true) {
-                    try {
-                        thread.join();
-                    } catch(InterruptedException ie) {
-                        //Try again and again and again
-                    }
-                    break;
-                }
+                thread.detach();
             }
 
             @Override
             public void surfaceCreated(SurfaceHolder holder) {
-                thread.setRunnable(true);
-                thread.start();
+                thread.attach(holder);
             }
 
             @Override
@@ -97,18 +101,90 @@ public class GameSurfaceView extends SurfaceView {
 
     public void setGame(Game g) {
         this.game = g;
+        // The game lays its path out on the same screen we draw on
+        g.setSize(screenWidth, screenHeight);
         this.thread.setGame(g);
     }
 
+    /**
+     * Show the store and inventory for a tower slot on top of the game.
+     * @param position The slot a picked tower goes in.
+     */
+    public void openPlacement(int position) {
+        if (game != null) {
+            overlay.open(game, position);
+        }
+    }
+
+    /**
+     * Close the store and inventory overlay if it's showing.
+     */
+    public void closePlacement() {
+        overlay.close();
+    }
+
+    /**
+     * Set who gets told when a tower is picked from the overlay.
+     * @param listener
+     */
+    public void setPlacementListener(PlacementOverlay.Listener listener) {
+        overlay.setListener(listener);
+    }
+
+    /**
+     * Let the drawing thread finish once the view is gone for good.
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        thread.quit();
+    }
+
+    /**
+     * Send taps to the overlay while it's open.
+     * @param event
+     * @return
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!overlay.isOpen()) {
+            return super.onTouchEvent(event);
+        }
+        if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+            overlay.onTap(game, event.getX(), event.getY());
+        }
+        return true;
+    }
+
+    /**
+     * Draws frames for as long as it has a surface. It's attached to a
+     * surface when one is created and detached when it's destroyed, and
+     * waits in between without giving up the thread or anything it draws
+     * with, so the app can go to the background and come back as many times
+     * as it likes.
+     */
     class DrawingThread extends Thread {
+        /** Past this many bacteria on screen, draw them grouped instead of one by one. */
+        private static final int LOD_THRESHOLD = 300;
+
+        /** Guards the surface, and is waited on while there isn't one. */
+        private final Object lock = new Object();
+
+        /** The surface being drawn on, null while detached. */
         private SurfaceHolder holder;
+
+        /** Whether a frame is being drawn right now. */
+        private boolean drawing;
+
+        /** Set once the view is gone, to let the thread finish. */
+        private boolean quit;
+
         private Canvas canvas;
-        private boolean run = false;
         private Bitmap bg;
-        private Bitmap pillBmp;
-        private Bitmap staphBmp;
-        private Bitmap strepBmp;
-        private Bitmap pneumoniaBmp;
+        private SpriteAtlas atlas;
+        private SpriteBatch batch;
+        private ClusterGrid clusters;
+        private PlacementOverlay overlay;
         private int width;
         private int height;
         private Game game;
@@ -120,38 +196,97 @@ public class GameSurfaceView extends SurfaceView {
         private int renderedMoney;
         private String renderedMoneyString;
 
+        // Bacteria that are on screen this frame
+        private int numVisible;
+        private int[] visibleSprite = new int[LOD_THRESHOLD];
+        private float[] visibleX = new float[LOD_THRESHOLD];
+        private float[] visibleY = new float[LOD_THRESHOLD];
+        private int[] visibleCount = new int[LOD_THRESHOLD];
+        private boolean anyColonies;
+        private Paint paintBadge;
+
         /**
          * Create a drawing thread and use the params to set up what we'll draw.
-         * @param holder
-         * @param bg
-         * @param pillBmp
+         * It doesn't draw anything until it's attached to a surface.
+         * @param overlay The store and inventory, drawn on top when it's open
          * @param width
          * @param height
          */
-        public DrawingThread(SurfaceHolder holder, Bitmap bg, Bitmap pillBmp, int width, int height) {
+        public DrawingThread(PlacementOverlay overlay, int width, int height) {
+            super("Drawing");
+            setDaemon(true);
+
             this.paintText = new Paint();
             paintText.setTextSize(50);
             paintText.setColor(Color.DKGRAY);
             paintText.setTextAlign(Paint.Align.CENTER);
 
-            this.holder = holder;
-            this.bg = bg;
-            this.pillBmp = pillBmp;
+            this.paintBadge = new Paint();
+            paintBadge.setTextSize(30);
+            paintBadge.setColor(Color.WHITE);
+            paintBadge.setTextAlign(Paint.Align.CENTER);
+
+            this.clusters = new ClusterGrid(width, height);
+            this.overlay = overlay;
             this.width = width;
             this.height = height;
+        }
 
-            staphBmp = BitmapFactory.decodeResource(getResources(), R.drawable.bacteria_staph);
-            strepBmp = BitmapFactory.decodeResource(getResources(), R.drawable.bacteria_strep);
-            pneumoniaBmp = BitmapFactory.decodeResource(getResources(), R.drawable.bacteria_pneumonia);
+        /**
+         * Hand over the background and sprites once they've been loaded.
+         * Until then, frames are drawn without them.
+         * @param bg
+         * @param atlas Atlas holding the bacteria and pill sprites
+         */
+        public void setAssets(Bitmap bg, SpriteAtlas atlas) {
+            synchronized (lock) {
+                this.bg = bg;
+                this.atlas = atlas;
+                this.batch = new SpriteBatch(atlas);
+            }
+        }
 
+        /**
+         * Start drawing on a surface. The first frame goes out right away.
+         * @param holder
+         */
+        public void attach(SurfaceHolder holder) {
+            synchronized (lock) {
+                this.holder = holder;
+                lock.notifyAll();
+            }
         }
 
         /**
-         * Toggle drawing.
-         * @param run
+         * Stop drawing on the surface. The surface goes away once this
+         * returns, so this waits for the frame being drawn on it, if any.
          */
-        public void setRunnable(boolean run) {
-            this.run = run;
+        public void detach() {
+            boolean interrupted = false;
+            synchronized (lock) {
+                holder = null;
+                while (drawing) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Stop drawing for good and let the thread finish.
+         */
+        public void quit() {
+            synchronized (lock) {
+                quit = true;
+                holder = null;
+                lock.notifyAll();
+            }
         }
 
         /**
@@ -164,37 +299,40 @@ public class GameSurfaceView extends SurfaceView {
         }
 
         /**
-         * Get the bitmap for a given bacteria.
-         * @param type
-         * @return
+         * Draw a frame whenever there's a surface, and wait for one when
+         * there isn't. Locking the canvas waits for the display, so frames
+         * go out once per refresh.
          */
-        private Bitmap getBmp(BacteriaType type) {
-            switch (type) {
-                case staph:
-                    return staphBmp;
-                case strep:
-                    return strepBmp;
-                case pneumonia:
-                    return pneumoniaBmp;
-                default:
-                    return null;
-            }
-        }
-
         @Override
         public void run() {
-            while (run) {
-                canvas = null;
-                try {
-                    canvas = holder.lockCanvas(null);
-
-                    synchronized (holder) {
-                        draw(canvas);
+            while (true) {
+                SurfaceHolder surface;
+                synchronized (lock) {
+                    while (holder == null && !quit) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            // Only quitting stops the thread
+                        }
+                    }
+                    if (quit) {
+                        return;
                     }
+                    surface = holder;
+                    drawing = true;
+                }
 
+                canvas = null;
+                try {
+                    canvas = surface.lockCanvas(null);
+                    draw(canvas);
                 } finally {
                     if (canvas != null) {
-                        holder.unlockCanvasAndPost(canvas);
+                        surface.unlockCanvasAndPost(canvas);
+                    }
+                    synchronized (lock) {
+                        drawing = false;
+                        lock.notifyAll();
                     }
                 }
             }
@@ -208,7 +346,11 @@ public class GameSurfaceView extends SurfaceView {
             if (canvas != null) {
                 canvas.drawColor(Color.TRANSPARENT);
                 //Draw background
-                canvas.drawBitmap(bg, 0, 0, null);
+                if (bg != null) {
+                    canvas.drawBitmap(bg, 0, 0, null);
+                } else {
+                    canvas.drawColor(Color.WHITE);
+                }
 
                 // Draw path
                 Paint paint = new Paint();
@@ -220,109 +362,123 @@ public class GameSurfaceView extends SurfaceView {
                 // Vertical chunk
                 canvas.drawRect(width/2-80, (height/3)-80, width/2+40, (height/3)*2+30, paint);
 
+                // Sprites get queued up and drawn together at the end,
+                // once they've loaded
+                boolean sprites = batch != null;
+                if (sprites) {
+                    batch.begin(canvas);
+                }
+
                 //Locate and draw target
-                if (this.game != null) {
-                    CopyOnWriteArrayList<Bacteria> allBacteria = game.getAllBacteria();
-                    for (Bacteria bac : allBacteria) {
-                        if (bac != null) {
-                            if (!bac.isInitialPositionSet()) {
-                                bac.setX(this.width + 10);
-                                bac.setY(height / 3 - 70);
-                                bac.setInitialPositionSet(true);
-                            }
-                            canvas.drawBitmap(getBmp(bac.getType()), bac.getX(), bac.getY(), null);
-                            if (!game.isPaused()) {
-                                moveBacteria(bac);
-                                game.checkForLoss();
+                boolean grouped = false;
+                if (this.game != null && sprites) {
+                    numVisible = 0;
+                    anyColonies = false;
+                    BacteriaStore allBacteria = game.getAllBacteria();
+                    for (int i = 0; i < allBacteria.size(); i++) {
+                        Bacteria bac = allBacteria.get(i);
+                        // Skip drawing anything that isn't on the screen (yet or anymore)
+                        if (bac != null && bac.isInitialPositionSet()) {
+                            int sprite = SpriteAtlas.spriteFor(bac.getType());
+                            if (isVisible(sprite, bac.getX(), bac.getY())) {
+                                addVisible(sprite, bac.getX(), bac.getY(), bac.getPopulation());
                             }
                         }
                     }
                     //Log.d("BAC", "" + allBacteria.size());
+                    grouped = queueVisible();
                 }
 
-                //Update current pill positions
-                for (Pill pill : game.getPills()) {
-                    canvas.drawBitmap(pillBmp, pill.getX(), pill.getY(), null);
-                    movePill(pill);
-                }
-
-                if (this.game != null && !game.towers.isEmpty()) {
-                    //Draw new pill for each tower
-                    for (AntibioticTower tower : game.towers) {
-                        if(tower != null && tower.getShooting() && tower.addPill()) {
-                            tower.setAddPill(false);
-                            Pill pill = null;
-                            switch (tower.getLocation()) {
-                                case 0:
-                                    pill = new Pill(width - 300, 200, game.bacteriaToTower.get(tower).peek(), 0);
-                                    break;
-                                case 1:
-                                    pill = new Pill((width/4)*3 - 300, 200, game.bacteriaToTower.get(tower).peek(), 1);
-                                    break;
-                                case 2:
-                                    pill = new Pill((width/4)*3 - 300, 450, game.bacteriaToTower.get(tower).peek(), 2);
-                                    break;
-                                case 3:
-                                    pill = new Pill(width/2 - 300, 450, game.bacteriaToTower.get(tower).peek(), 3);
-                                    break;
-                                case 4:
-                                    pill = new Pill(width/4 - 300, 450, game.bacteriaToTower.get(tower).peek(), 4);
-                                    break;
-                            }
-                            if (pill != null) {
-                                CopyOnWriteArrayList<Pill> pills = game.getPills();
-                                pills.add(pill);
-                                game.setPills(pills);
-                                canvas.drawBitmap(pillBmp, pill.getX(), pill.getY(), null);
-                            }
-                        }
+                // Draw the pills the towers have fired
+                if (this.game != null && sprites) {
+                    for (Pill pill : game.getPills()) {
+                        batch.add(SpriteAtlas.PILL, pill.getX(), pill.getY());
                     }
                 }
+                if (sprites) {
+                    batch.end();
+                }
+                if (grouped) {
+                    clusters.drawBadges(canvas, paintBadge);
+                } else if (anyColonies) {
+                    drawColonyBadges(canvas);
+                }
 
                 canvas.drawText(getScoreString(), 150, 100, paintText);
                 canvas.drawText(getMoneyString(), 500, 100, paintText);
                 canvas.drawText(game.getResistanceString(), canvas.getWidth()/3, canvas.getHeight() - 50, paintText);
+
+                overlay.draw(canvas);
             }
         }
 
         /**
-         * Move the bacteria across the path.
-         * @param bacteria
+         * Check whether any part of a sprite drawn at (x, y) would be on the screen.
+         * @param sprite
+         * @param x
+         * @param y
+         * @return
          */
-        public void moveBacteria(Bacteria bacteria) {
-            int moveDownPoint = width/2-70;
-            int moveLeftAgainPoint = (height/3)*2 - 70;
-            if (bacteria.getX() > -100) {
-                if ((bacteria.getX() > moveDownPoint && bacteria.getY() < 375) || bacteria.getY() > moveLeftAgainPoint) {
-                    bacteria.setX(bacteria.getX() - 5);
-                } else {
-                    bacteria.setY(bacteria.getY() + 5);
+        private boolean isVisible(int sprite, float x, float y) {
+            return x < width && y < height
+                    && x + atlas.getWidth(sprite) > 0 && y + atlas.getHeight(sprite) > 0;
+        }
+
+        /**
+         * Remember a bacteria that's on screen so it can be drawn once we know
+         * how many there are.
+         * @param sprite
+         * @param x
+         * @param y
+         * @param count How many bacteria it stands for (more than one for a colony).
+         */
+        private void addVisible(int sprite, float x, float y, int count) {
+            if (numVisible == visibleSprite.length) {
+                int size = numVisible * 2;
+                visibleSprite = Arrays.copyOf(visibleSprite, size);
+                visibleX = Arrays.copyOf(visibleX, size);
+                visibleY = Arrays.copyOf(visibleY, size);
+                visibleCount = Arrays.copyOf(visibleCount, size);
+            }
+            visibleSprite[numVisible] = sprite;
+            visibleX[numVisible] = x;
+            visibleY[numVisible] = y;
+            visibleCount[numVisible] = count;
+            anyColonies |= count > 1;
+            numVisible++;
+        }
+
+        /**
+         * Draw the population on top of each colony that's on screen.
+         * @param canvas
+         */
+        private void drawColonyBadges(Canvas canvas) {
+            for (int i = 0; i < numVisible; i++) {
+                if (visibleCount[i] > 1) {
+                    clusters.drawBadge(canvas, paintBadge, visibleCount[i], visibleX[i], visibleY[i]);
                 }
-            } else {
-                bacteria.setOnScreen(false);
             }
         }
 
         /**
-         * Move the pills toward the bacteria.
-         * @param pill
+         * Queue the on screen bacteria to be drawn. If there are too many, group
+         * the ones that are close together so each group is a single sprite.
+         * @return True if they were grouped and need count badges drawn.
          */
-        private void movePill(Pill pill) {
-            if (pill.getTargetBacteria() == null || !pill.getTargetBacteria().isOnScreen()) {
-                //remove pill
-                CopyOnWriteArrayList<Pill> pills = game.getPills();
-                pills.remove(pill);
-                game.setPills(pills);
-            } else if ((pill.getOrigin() == 2 && pill.getX() < width/2-80) ||
-                    ((pill.getOrigin() == 0 || pill.getOrigin() == 1)  && pill.getY() > (height/3)) ||
-                    ((pill.getOrigin() == 3 || pill.getOrigin() == 4)  && pill.getY() > (height/3)*2)){
-                // pill has moved beyond vein
-                CopyOnWriteArrayList<Pill> pills = game.getPills();
-                pills.remove(pill);
-                game.setPills(pills);
-            } else {
-                pill.updatePosition();
+        private boolean queueVisible() {
+            if (numVisible <= LOD_THRESHOLD) {
+                for (int i = 0; i < numVisible; i++) {
+                    batch.add(visibleSprite[i], visibleX[i], visibleY[i]);
+                }
+                return false;
+            }
+
+            clusters.reset();
+            for (int i = 0; i < numVisible; i++) {
+                clusters.add(visibleSprite[i], visibleX[i], visibleY[i], visibleCount[i]);
             }
+            clusters.queueSprites(batch);
+            return true;
         }
 
         /**
@@ -0,0 +1,22 @@
+package cisgvsu.biotowerdefense;
+
+/**
+ * One gameplay rule that runs every simulation tick, like moving the
+ * bacteria or letting the towers fire. Systems work straight on the game's
+ * dense stores (the {@link BacteriaStore}, {@link StatusEffects} and the
+ * tower slots) with plain index loops. The game runs them in a fixed order
+ * with a {@link SystemRunner}.
+ */
+public interface GameSystem {
+    /**
+     * Get a short name for the system, for measuring it.
+     * @return
+     */
+    String getName();
+
+    /**
+     * Run the system for one tick.
+     * @param millis How much game time the tick covers.
+     */
+    void update(long millis);
+}
@@ -0,0 +1,200 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Spreads resistance between bacteria that are close to each other
+ * (conjugation). Every tick, each bacteria carrying resistance genes looks
+ * up its neighbours in a {@link SpatialHash} and passes its genes on to
+ * each one with some chance.
+ *
+ * Transfers found in a tick are only applied at the end of the tick, so
+ * genes can't hop across a whole swarm in one go and the result doesn't
+ * depend on the order the bacteria are stored in.
+ *
+ * Big swarms are split across a {@link WorkerPool}. Each roll is a hash of
+ * the tick's seed and the two bacteria's indices, and each chunk collects its
+ * own transfers that get merged in chunk order, so a seeded game comes out
+ * the same however many threads it runs on.
+ */
+public class GeneTransfer {
+    /** How close two bacteria have to be to pass on resistance, in pixels. */
+    private static final int RADIUS = 40;
+
+    /** Chance each tick that a bacteria passes its genes to one neighbour. */
+    private static final double CHANCE = 0.05;
+
+    /** Most neighbours looked at for one donor. */
+    private static final int MAX_NEIGHBOURS = 64;
+
+    /** Fewest bacteria worth handing to another thread. */
+    private static final int GRAIN = 2048;
+
+    /**
+     * Scratch space and found transfers for one chunk of the store.
+     */
+    private static class Chunk {
+        final int[] neighbours = new int[MAX_NEIGHBOURS];
+        final int[] visited = new int[SpatialHash.QUERY_SCRATCH];
+        Bacteria[] recipients = new Bacteria[16];
+        int[] genes = new int[16];
+        int count;
+
+        void add(Bacteria recipient, int missing) {
+            if (count == recipients.length) {
+                recipients = Arrays.copyOf(recipients, count * 2);
+                genes = Arrays.copyOf(genes, count * 2);
+            }
+            recipients[count] = recipient;
+            genes[count] = missing;
+            count++;
+        }
+    }
+
+    private final SpatialHash grid = new SpatialHash(RADIUS);
+    private final Random random;
+    private final Chunk[] chunks = new Chunk[WorkerPool.MAX_CHUNKS];
+
+    /** Bacteria picking up genes this tick, and the genes they pick up. */
+    private Bacteria[] recipients = new Bacteria[16];
+    private int[] genes = new int[16];
+    private int numTransfers;
+
+    /** What the current tick is working on. */
+    private BacteriaStore store;
+    private long seed;
+
+    /** Looks for transfers from the donors in one chunk of the store. */
+    private final WorkerPool.RangeTask findTransfers = new WorkerPool.RangeTask() {
+        @Override
+        public void run(int chunk, int from, int to) {
+            findTransfers(chunks[chunk], from, to);
+        }
+    };
+
+    /**
+     * Create a gene transfer model.
+     * @param random Where the random rolls come from.
+     */
+    public GeneTransfer(Random random) {
+        this.random = random;
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk();
+        }
+    }
+
+    /**
+     * Update the grid and work out which bacteria pick up resistance this tick.
+     * Call {@link #getTransferCount()}, {@link #getRecipient(int)} and
+     * {@link #getGenes(int)} afterwards to apply them.
+     * @param store Every bacteria in the game.
+     * @return How many transfers happened.
+     */
+    public int tick(BacteriaStore store) {
+        return tick(store, null);
+    }
+
+    /**
+     * Update the grid and work out which bacteria pick up resistance this
+     * tick, splitting the donors across a pool of threads.
+     * @param store Every bacteria in the game.
+     * @param pool Threads to use, or null to do it all on this one.
+     * @return How many transfers happened.
+     */
+    public int tick(BacteriaStore store, WorkerPool pool) {
+        Arrays.fill(recipients, 0, numTransfers, null);
+        numTransfers = 0;
+        grid.update(store);
+        this.store = store;
+        this.seed = random.nextLong();
+
+        int n = store.size();
+        int used = pool != null ? pool.forRange(n, GRAIN, findTransfers) : runInline(n);
+
+        // Merge in chunk order, which is store order
+        for (int c = 0; c < used; c++) {
+            Chunk chunk = chunks[c];
+            for (int i = 0; i < chunk.count; i++) {
+                addTransfer(chunk.recipients[i], chunk.genes[i]);
+            }
+            Arrays.fill(chunk.recipients, 0, chunk.count, null);
+            chunk.count = 0;
+        }
+        this.store = null;
+        return numTransfers;
+    }
+
+    /**
+     * Get how many transfers the last tick found.
+     * @return
+     */
+    public int getTransferCount() {
+        return numTransfers;
+    }
+
+    /**
+     * Get the bacteria picking up genes in a transfer.
+     * @param i
+     * @return
+     */
+    public Bacteria getRecipient(int i) {
+        return recipients[i];
+    }
+
+    /**
+     * Get the genes being picked up in a transfer, one bit per antibiotic ordinal.
+     * @param i
+     * @return
+     */
+    public int getGenes(int i) {
+        return genes[i];
+    }
+
+    /**
+     * Look for transfers from the whole store on this thread.
+     */
+    private int runInline(int n) {
+        if (n > 0) {
+            findTransfers.run(0, 0, n);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Look for transfers from the donors between two store indices.
+     */
+    private void findTransfers(Chunk chunk, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Bacteria donor = store.get(i);
+            if (donor == null || donor.getResistanceGenes() == 0) {
+                continue;
+            }
+            int found = grid.query(store, donor.getX(), donor.getY(), RADIUS, chunk.neighbours, chunk.visited);
+            for (int j = 0; j < found; j++) {
+                Bacteria other = store.get(chunk.neighbours[j]);
+                if (other == null || other == donor) {
+                    continue;
+                }
+                int missing = donor.getResistanceGenes() & ~other.getResistanceGenes();
+                if (missing != 0 && HashRandom.unit(seed, i, chunk.neighbours[j]) < CHANCE) {
+                    chunk.add(other, missing);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remember a transfer to apply at the end of the tick.
+     */
+    private void addTransfer(Bacteria recipient, int missing) {
+        if (numTransfers == recipients.length) {
+            recipients = Arrays.copyOf(recipients, numTransfers * 2);
+            genes = Arrays.copyOf(genes, numTransfers * 2);
+        }
+        recipients[numTransfers] = recipient;
+        genes[numTransfers] = missing;
+        numTransfers++;
+    }
+}
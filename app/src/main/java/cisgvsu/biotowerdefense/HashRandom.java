@@ -0,0 +1,34 @@
+package cisgvsu.biotowerdefense;
+
+/**
+ * Random numbers worked out by hashing instead of drawn one after another,
+ * so the roll for a given bacteria on a given tick comes out the same
+ * whichever thread does it, and in whatever order. Uses the SplitMix64 mixer.
+ */
+public class HashRandom {
+    private HashRandom() {
+    }
+
+    /**
+     * Scramble the bits of a number.
+     * @param z
+     * @return
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Get a random number between 0 and 1 for a pair of keys.
+     * @param seed Seed for this tick, drawn from the game's random.
+     * @param a First key, like a store index.
+     * @param b Second key.
+     * @return A number from 0 (inclusive) to 1 (exclusive).
+     */
+    public static double unit(long seed, long a, long b) {
+        long h = mix(mix(seed ^ mix(a)) + b);
+        return (h >>> 11) * 0x1.0p-53;
+    }
+}
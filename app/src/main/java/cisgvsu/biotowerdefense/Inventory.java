@@ -0,0 +1,107 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+
+/**
+ * How many of each type of tower the player has bought but not placed,
+ * kept as one count per {@link AntibioticType} ordinal. It goes to the
+ * store screen in an intent as an {@link InventoryParcel}, instead of being
+ * turned into display strings and parsed back.
+ */
+public class Inventory {
+    /** How many of each type, indexed by ordinal. */
+    private final int[] counts;
+
+    /**
+     * Create an empty inventory.
+     */
+    public Inventory() {
+        this.counts = new int[AntibioticType.values().length];
+    }
+
+    /**
+     * Create an inventory from counts by ordinal. Types that have been
+     * added since the counts were saved start at 0.
+     * @param counts
+     */
+    Inventory(int[] counts) {
+        this.counts = Arrays.copyOf(counts, AntibioticType.values().length);
+    }
+
+    /**
+     * Get how many of a type there are.
+     * @param type
+     * @return
+     */
+    public int get(AntibioticType type) {
+        return counts[type.ordinal()];
+    }
+
+    /**
+     * Add one of a type.
+     * @param type
+     */
+    public void add(AntibioticType type) {
+        counts[type.ordinal()]++;
+    }
+
+    /**
+     * Take one of a type out.
+     * @param type
+     * @return False if there weren't any.
+     */
+    public boolean take(AntibioticType type) {
+        if (counts[type.ordinal()] == 0) {
+            return false;
+        }
+        counts[type.ordinal()]--;
+        return true;
+    }
+
+    /**
+     * Take everything out.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * Get how many different types there's at least one of.
+     * @return
+     */
+    public int getTypeCount() {
+        int n = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Get a copy that won't change when this one does.
+     * @return
+     */
+    public Inventory copy() {
+        return new Inventory(counts);
+    }
+
+    /**
+     * Get a copy of the counts by ordinal.
+     * @return
+     */
+    int[] getCounts() {
+        return counts.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Inventory && Arrays.equals(counts, ((Inventory) o).counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+}
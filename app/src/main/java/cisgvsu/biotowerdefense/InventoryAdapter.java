@@ -0,0 +1,140 @@
+package cisgvsu.biotowerdefense;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.util.Arrays;
+
+/**
+ * Shows the types of tower in an {@link Inventory}, one row for each type
+ * there's at least one of. Handing it a new inventory does nothing if no
+ * count changed. If only counts changed, just the rows showing them are
+ * rebound; the whole grid is only refreshed when a type comes or goes.
+ * Rows are built straight from the types, so nothing gets parsed back out
+ * of the display text.
+ */
+public class InventoryAdapter extends BaseAdapter {
+    private final Context context;
+
+    /** The type in each row, and how many there are. */
+    private AntibioticType[] types = new AntibioticType[0];
+    private int[] counts = new int[0];
+
+    /** The grid showing the rows, to rebind single rows in. */
+    private AdapterView<?> grid;
+
+    public InventoryAdapter(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Set the grid this adapter is shown in, so a changed count can be
+     * redrawn without rebinding every row.
+     * @param grid
+     */
+    public void setGrid(AdapterView<?> grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Show an inventory.
+     * @param inventory
+     * @return True if anything changed since the last one.
+     */
+    public boolean setInventory(Inventory inventory) {
+        int rows = inventory.getTypeCount();
+        AntibioticType[] newTypes = new AntibioticType[rows];
+        int[] newCounts = new int[rows];
+        int row = 0;
+        for (AntibioticType type : AntibioticType.values()) {
+            if (row < rows && inventory.get(type) > 0) {
+                newTypes[row] = type;
+                newCounts[row] = inventory.get(type);
+                row++;
+            }
+        }
+        if (Arrays.equals(newTypes, types)) {
+            if (Arrays.equals(newCounts, counts)) {
+                return false;
+            }
+            int[] oldCounts = counts;
+            counts = newCounts;
+            if (grid == null) {
+                notifyDataSetChanged();
+            } else {
+                for (int i = 0; i < rows; i++) {
+                    if (oldCounts[i] != newCounts[i]) {
+                        updateRow(i);
+                    }
+                }
+            }
+            return true;
+        }
+        types = newTypes;
+        counts = newCounts;
+        notifyDataSetChanged();
+        return true;
+    }
+
+    /**
+     * Rebind one row if it's on screen. Rows that aren't will be bound
+     * with the new count when they're scrolled to.
+     * @param position
+     */
+    private void updateRow(int position) {
+        int first = grid.getFirstVisiblePosition();
+        if (position < first || position > grid.getLastVisiblePosition()) {
+            return;
+        }
+        View row = grid.getChildAt(position - first);
+        if (row != null) {
+            getView(position, row, grid);
+        }
+    }
+
+    /**
+     * Get the type of tower in a row.
+     * @param position
+     * @return
+     */
+    public AntibioticType getType(int position) {
+        return types[position];
+    }
+
+    @Override
+    public int getCount() {
+        return types.length;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return types[position];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        // Rows are the same type until it runs out, so the ordinal works as an ID
+        return types[position].ordinal();
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View view = convertView;
+        if (view == null) {
+            view = LayoutInflater.from(context).inflate(android.R.layout.simple_list_item_1, parent, false);
+        }
+        TextView text = (TextView) view.findViewById(android.R.id.text1);
+        text.setText(AntibioticType.toString(types[position]) + "\nAvailable: " + counts[position]);
+        return view;
+    }
+}
@@ -9,26 +9,21 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
 import android.widget.GridView;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 /**
  * Control the contents of the Inventory tab.
  * Created by Kelsey on 11/5/2017.
  */
 
 public class InventoryFragment extends android.support.v4.app.Fragment {
-    private ArrayList<String> strInventory = new ArrayList<>();
-    private HashMap<String, Integer> inventory = new HashMap<>();
+    private InventoryAdapter adapter;
     private int towerPosition = 0;
     final static String EXTRA_TOWER_TO_PLACE = "cisgvsu.biotowerdefense.tower_to_place";
     final static String EXTRA_TOWER_POSITION = "cisgvsu.biotowerdefense.tower_position";
 
     /**
-     * Set up the handler for when an item in the strInventory is clicked on.
+     * Set up the handler for when an item in the inventory is clicked on.
      */
     private AdapterView.OnItemClickListener mMessageClickHandler = new AdapterView.OnItemClickListener() {
         @Override
@@ -67,7 +62,7 @@ public class InventoryFragment extends android.support.v4.app.Fragment {
     }
 
     /**
-     * Create the view for the strInventory by populating the GridView.
+     * Create the view for the inventory by populating the GridView.
      * @param inflater
      * @param container
      * @param savedInstanceState
@@ -75,23 +70,25 @@ public class InventoryFragment extends android.support.v4.app.Fragment {
      */
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        // Set up adapter
+        this.adapter = new InventoryAdapter(getActivity().getApplicationContext());
+
         // Get the stuff that the main navigation activity sent us
         if (getArguments() != null) {
             this.towerPosition = getArguments().getInt(MainActivity.EXTRA_TOWER_POSITION);
-            parseInventory(getArguments().getStringArrayList(MainActivity.EXTRA_INVENTORY));
-            createStrInventory();
+            InventoryParcel parcel = getArguments().getParcelable(MainActivity.EXTRA_INVENTORY);
+            if (parcel != null) {
+                adapter.setInventory(parcel.getInventory());
+            }
         }
 
         // Get the view for this fragment
         View view = inflater.inflate(R.layout.inventory_fragment, container, false);
 
-        // Set up adapter
-        ArrayAdapter<String> adapter = new ArrayAdapter<String>(getActivity().getApplicationContext(),
-                android.R.layout.simple_list_item_1, this.strInventory);
-
         // Attach to GridView
         GridView gridView = (GridView) view.findViewById(R.id.inventoryGridView);
         gridView.setAdapter(adapter);
+        adapter.setGrid(gridView);
 
         // Set click listener
         gridView.setOnItemClickListener(mMessageClickHandler);
@@ -99,45 +96,29 @@ public class InventoryFragment extends android.support.v4.app.Fragment {
         return view;
     }
 
+    /**
+     * Catch up with the game in case the inventory changed while we were
+     * away. Only rows whose count changed get redrawn.
+     */
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (adapter != null) {
+            BioTowerDefense app = (BioTowerDefense) getActivity().getApplicationContext();
+            adapter.setInventory(app.getGame().getInventory());
+        }
+    }
+
     /**
      * If we're adding this tower, then build an intent for it
      * and send user back to the main screen.
      * @param index Index in list of tower to add.
      */
     public void handleAdd(int index) {
-        String tower = this.strInventory.get(index);
+        AntibioticType tower = this.adapter.getType(index);
         Intent intent = new Intent(getActivity(), MainActivity.class);
-        intent.putExtra(InventoryFragment.EXTRA_TOWER_TO_PLACE, tower);
+        intent.putExtra(InventoryFragment.EXTRA_TOWER_TO_PLACE, tower.ordinal());
         intent.putExtra(InventoryFragment.EXTRA_TOWER_POSITION, this.towerPosition);
         startActivity(intent);
     }
-
-    /**
-     * Parse the list of strings we got into a HashMap of the types
-     * of towers and how many are available to be placed.
-     */
-    public void parseInventory(ArrayList<String> strInv) {
-        HashMap<String, Integer> inv = new HashMap<>();
-        for (String str : strInv) {
-            // Get the type and whether it was placed
-            String type = str.substring(0, str.indexOf(":"));
-            int count = Integer.parseInt(str.substring(str.indexOf(":")+2));
-
-            inv.put(type, count);
-        }
-        this.inventory = inv;
-    }
-
-    /**
-     * Create the list that will be displayed
-     * as the inventory.
-     */
-    public void createStrInventory() {
-        ArrayList<String> list = new ArrayList<>();
-        for (String type : this.inventory.keySet()) {
-            String tmp = type.substring(0,1).toUpperCase() + type.substring(1);
-            list.add(tmp + "\nAvailable: " + this.inventory.get(type));
-        }
-        this.strInventory = list;
-    }
 }
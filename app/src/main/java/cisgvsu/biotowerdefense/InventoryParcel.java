@@ -0,0 +1,42 @@
+package cisgvsu.biotowerdefense;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Carries an {@link Inventory} in an intent or bundle. The inventory itself
+ * stays free of Android classes so the game can run without it.
+ */
+public class InventoryParcel implements Parcelable {
+    private final Inventory inventory;
+
+    public InventoryParcel(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeIntArray(inventory.getCounts());
+    }
+
+    public static final Parcelable.Creator<InventoryParcel> CREATOR = new Parcelable.Creator<InventoryParcel>() {
+        @Override
+        public InventoryParcel createFromParcel(Parcel source) {
+            return new InventoryParcel(new Inventory(source.createIntArray()));
+        }
+
+        @Override
+        public InventoryParcel[] newArray(int size) {
+            return new InventoryParcel[size];
+        }
+    };
+}
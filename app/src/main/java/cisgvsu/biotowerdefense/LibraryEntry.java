@@ -0,0 +1,62 @@
+package cisgvsu.biotowerdefense;
+
+/**
+ * One entry in the library: an antibiotic or a type of bacteria, with its
+ * name, description and picture. The entries are built once from the
+ * types and shared after that.
+ */
+public class LibraryEntry {
+    /** Every entry, built the first time they're asked for. */
+    private static LibraryEntry[] entries;
+
+    private final String name;
+    private final int description;
+    private final int image;
+
+    /**
+     * Create an entry.
+     * @param name
+     * @param description String resource.
+     * @param image Drawable resource.
+     */
+    public LibraryEntry(String name, int description, int image) {
+        this.name = name;
+        this.description = description;
+        this.image = image;
+    }
+
+    /**
+     * Get every entry in the library, antibiotics first and then bacteria.
+     * @return
+     */
+    public static synchronized LibraryEntry[] getAll() {
+        if (entries == null) {
+            AntibioticType[] antibiotics = AntibioticType.values();
+            BacteriaType[] bacteria = BacteriaType.values();
+            LibraryEntry[] all = new LibraryEntry[antibiotics.length + bacteria.length];
+            int i = 0;
+            for (AntibioticType type : antibiotics) {
+                all[i++] = new LibraryEntry(AntibioticType.toString(type),
+                        AntibioticType.getDescription(type), AntibioticType.getImage(type));
+            }
+            for (BacteriaType type : bacteria) {
+                all[i++] = new LibraryEntry(BacteriaType.getLongName(type) + " (" + BacteriaType.getShortName(type) + ")",
+                        BacteriaType.getDescription(type), BacteriaType.getImage(type));
+            }
+            entries = all;
+        }
+        return entries;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDescription() {
+        return description;
+    }
+
+    public int getImage() {
+        return image;
+    }
+}
@@ -1,51 +1,104 @@
 package cisgvsu.biotowerdefense;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 /**
- * Custom listview for library.
+ * Custom listview for library. Rows are reused as they scroll off, and
+ * icons are decoded on the loading thread into the shared bitmap cache.
  * Created by Kelsey on 11/30/2017.
  */
 
-public class LibraryEntryAdapter extends ArrayAdapter<String> {
+public class LibraryEntryAdapter extends BaseAdapter {
 
     private final Context context;
-    private final int[] details;
-    private final String[] names;
-    private final int[] imgs;
+    private final LibraryEntry[] entries;
+    private final BitmapCache bitmaps;
 
-    public LibraryEntryAdapter(Context context, int[] details, String[] names, int[] imgs) {
-        super(context, -1, new String[6]);
+    /**
+     * The views in one row, kept in its tag so they aren't looked up again.
+     */
+    private static class ViewHolder {
+        TextView label;
+        TextView detail;
+        ImageView icon;
+
+        /** The image the row is showing now, so a late icon for an old entry is ignored. */
+        int image;
+    }
+
+    public LibraryEntryAdapter(Context context, LibraryEntry[] entries, BitmapCache bitmaps) {
         this.context = context;
-        this.details = details;
-        this.names = names;
-        this.imgs = imgs;
+        this.entries = entries;
+        this.bitmaps = bitmaps;
+    }
+
+    @Override
+    public int getCount() {
+        return entries.length;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return entries[position];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
     }
 
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        LayoutInflater inflater = (LayoutInflater) context
-                .getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        View rowView = inflater.inflate(R.layout.rowlayout, parent, false);
+        View rowView = convertView;
+        final ViewHolder holder;
+        if (rowView == null) {
+            rowView = LayoutInflater.from(context).inflate(R.layout.rowlayout, parent, false);
+            holder = new ViewHolder();
+            holder.label = (TextView) rowView.findViewById(R.id.label);
+            holder.detail = (TextView) rowView.findViewById(R.id.detail);
+            holder.icon = (ImageView) rowView.findViewById(R.id.icon);
+            rowView.setTag(holder);
+        } else {
+            holder = (ViewHolder) rowView.getTag();
+        }
+        LibraryEntry entry = entries[position];
 
         // Set label text
-        TextView labelText = (TextView) rowView.findViewById(R.id.label);
-        labelText.setText(names[position]);
-        labelText.setAllCaps(true);
+        holder.label.setText(entry.getName());
+        holder.label.setAllCaps(true);
 
         // Set detail text
-        TextView detailText = (TextView) rowView.findViewById(R.id.detail);
-        detailText.setText(details[position]);
+        holder.detail.setText(entry.getDescription());
 
-        // Set icon
-        ImageView img = (ImageView) rowView.findViewById(R.id.icon);
-        img.setImageResource(imgs[position]);
+        // Set icon, or clear it and load it if it isn't cached yet
+        holder.image = entry.getImage();
+        Bitmap cached = bitmaps.getCached(entry.getImage(), 0, 0);
+        if (cached != null) {
+            holder.icon.setImageBitmap(cached);
+        } else {
+            holder.icon.setImageBitmap(null);
+            bitmaps.load(entry.getImage(), 0, 0, false, new BitmapCache.Callback() {
+                @Override
+                public void onLoaded(final int id, final Bitmap bitmap) {
+                    holder.icon.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            // The row may have been reused for another entry by now
+                            if (holder.image == id) {
+                                holder.icon.setImageBitmap(bitmap);
+                            }
+                        }
+                    });
+                }
+            });
+        }
 
         return rowView;
     }
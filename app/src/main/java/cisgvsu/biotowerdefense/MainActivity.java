@@ -11,7 +11,13 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.ImageView;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -25,6 +31,12 @@ public class MainActivity extends AppCompatActivity implements Observer {
     public static final String EXTRA_INVENTORY = "cisgvsu.biotowerdefense.EXTRA_INVENTORY";
     public static final String EXTRA_MONEY = "cisgvsu.biotowerdefense.EXTRA_MONEY";
 
+    /** Our subscription to the game's events, cancelled when we're destroyed. */
+    private Subscription subscription;
+
+    /** The image for each tower slot. */
+    private final ArrayList<ImageView> towerImages = new ArrayList<>();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -33,8 +45,11 @@ public class MainActivity extends AppCompatActivity implements Observer {
         BioTowerDefense app = (BioTowerDefense) getApplicationContext();
         final Game game = app.getGame();
 
-        // Add ourselves as an observer, and then pass the game object to the view
-        game.addObserver(this);
+        // Subscribe to the game's events, and then pass the game object to the view
+        subscription = game.subscribe(this);
+        if (BuildConfig.DEBUG) {
+            Log.d("SUBSCRIBERS", "" + game.getSubscriberCount());
+        }
         ((GameSurfaceView) findViewById(R.id.surfaceView)).setGame(game);
 
         // Control starting and pausing the game
@@ -72,38 +87,43 @@ public class MainActivity extends AppCompatActivity implements Observer {
         });
 
         // Handle any extras we may have gotten (aka we navigated here from store/inventory)
+        // The game places the tower between ticks, so remember it to show it right away
+        AntibioticType placedType = null;
+        int placedPosition = -1;
         Intent intent = getIntent();
         Bundle extras = intent.getExtras();
         if (extras != null) {
-            // Get the extras from the inventory, if that's where we came from
-            String tower = extras.getString(InventoryFragment.EXTRA_TOWER_TO_PLACE);
+            // Get the extras from the inventory, if that's where we came from.
+            // Towers are sent as their AntibioticType ordinal.
+            int tower = extras.getInt(InventoryFragment.EXTRA_TOWER_TO_PLACE, -1);
             int position = extras.getInt(InventoryFragment.EXTRA_TOWER_POSITION, -999);
 
             // Came from inventory
-            if (position != -999 && tower != null) {
-                String strType = tower.substring(0, tower.indexOf("\n"));
-
+            if (position != -999 && tower >= 0) {
                 // Add tower to game
-                AntibioticType type = AntibioticType.stringToEnum(strType);
+                AntibioticType type = AntibioticType.values()[tower];
                 game.takeOutOfInventoryAndAdd(type, position);
+                placedType = type;
+                placedPosition = position;
             } else {
                 // Get the extras from the store, if that's where we came from
                 position = extras.getInt(StoreFragment.EXTRA_TOWER_POSITION, -999);
-                tower = extras.getString(StoreFragment.EXTRA_TOWER_TO_PLACE);
+                tower = extras.getInt(StoreFragment.EXTRA_TOWER_TO_PLACE, -1);
 
                 // Came from store
-                if (position != -999 && tower != null) {
-                    String strType = tower.substring(0, tower.indexOf("\n"));
-
+                if (position != -999 && tower >= 0) {
                     // Add tower to game
-                    AntibioticType type = AntibioticType.stringToEnum(strType);
+                    AntibioticType type = AntibioticType.values()[tower];
                     game.buyTower(type, position);
+                    placedType = type;
+                    placedPosition = position;
                 }
             }
         }
 
         // Get handles to the tower imageviews.
-        ArrayList<ImageView> towerImages = new ArrayList<>();
+        towerImages.clear();
+        final GameSurfaceView surfaceView = (GameSurfaceView) findViewById(R.id.surfaceView);
         for (int i = 0; i < 5; i++) {
             final int index = i;
             final ImageView t;
@@ -128,15 +148,25 @@ public class MainActivity extends AppCompatActivity implements Observer {
             }
 
             if (t != null) {
+                // Tapping a slot opens the store over the game, holding it opens the full store
                 t.setOnClickListener(new View.OnClickListener() {
                     public void onClick(View v) {
+                        setTowersVisible(towerImages, false);
+                        surfaceView.openPlacement(index);
+                    }
+                });
+                t.setOnLongClickListener(new View.OnLongClickListener() {
+                    public boolean onLongClick(View v) {
                         launchStore(index);
+                        return true;
                     }
                 });
 
                 // If this spot has an actual tower, get the right resource for it
                 AntibioticTower towerFromGame = game.towerAtIndex(i);
-                if (towerFromGame != null) {
+                if (i == placedPosition) {
+                    t.setImageResource(AntibioticType.getImage(placedType));
+                } else if (towerFromGame != null) {
                     AntibioticType type = towerFromGame.getType();
                     t.setImageResource(AntibioticType.getImage(type));
                 }
@@ -144,6 +174,35 @@ public class MainActivity extends AppCompatActivity implements Observer {
 
             towerImages.add(t);
         }
+
+        // The tower images sit on top of the game, so hide them while the overlay is up
+        surfaceView.setPlacementListener(new PlacementOverlay.Listener() {
+            @Override
+            public void onPlaced(int position, AntibioticType type) {
+                ImageView t = towerImages.get(position);
+                if (t != null) {
+                    t.setImageResource(AntibioticType.getImage(type));
+                }
+            }
+
+            @Override
+            public void onClosed() {
+                setTowersVisible(towerImages, true);
+            }
+        });
+    }
+
+    /**
+     * Show or hide the tower images.
+     * @param towerImages
+     * @param visible
+     */
+    private void setTowersVisible(ArrayList<ImageView> towerImages, boolean visible) {
+        for (ImageView t : towerImages) {
+            if (t != null) {
+                t.setVisibility(visible ? View.VISIBLE : View.INVISIBLE);
+            }
+        }
     }
 
     @Override
@@ -160,6 +219,15 @@ public class MainActivity extends AppCompatActivity implements Observer {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        // The game outlives us, so stop it from holding on to us
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        super.onDestroy();
+    }
+
     /**
      * Launch the store/inventory screen and pass to it which tower was pressed.
      * @param position The tower that was pressed.
@@ -171,7 +239,7 @@ public class MainActivity extends AppCompatActivity implements Observer {
 
         Intent intent = new Intent(this, StoreInventoryNavigationActivity.class);
         intent.putExtra(EXTRA_TOWER_POSITION, position);
-        intent.putStringArrayListExtra(EXTRA_INVENTORY, game.getInventoryAsStrings());
+        intent.putExtra(EXTRA_INVENTORY, new InventoryParcel(game.getInventory()));
         intent.putExtra(EXTRA_MONEY, game.getMoney());
         startActivity(intent);
     }
@@ -220,9 +288,12 @@ public class MainActivity extends AppCompatActivity implements Observer {
 
         } else if (msg.getType() == ObserverMessage.GAME_OVER) {
             // Game has been lost
+            // Start the next game in place, the screen stays up and just gets cleared
             final String text = msg.getText();
-            Game g = app.startNew();
-            ((GameSurfaceView) findViewById(R.id.surfaceView)).setGame(g);
+            if (BuildConfig.DEBUG) {
+                saveSession(game.getSession());
+            }
+            game.reset();
 
             new Thread() {
                 public void run() {
@@ -242,6 +313,67 @@ public class MainActivity extends AppCompatActivity implements Observer {
         }
     }
 
+    /** How many recordings to keep in the sessions folder. */
+    private static final int KEPT_SESSIONS = 20;
+
+    /**
+     * Save a finished game's recording in the app's files, under sessions,
+     * so it can be pulled off the device and added to the replay tests.
+     * Only debug builds do this, and only the newest few are kept.
+     * @param session
+     */
+    private void saveSession(final String session) {
+        final File dir = new File(getFilesDir(), "sessions");
+        new Thread() {
+            public void run() {
+                File file = new File(dir, System.currentTimeMillis() + ".scenario");
+                try {
+                    dir.mkdirs();
+                    Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                    try {
+                        out.write(session);
+                    } finally {
+                        out.close();
+                    }
+                    pruneSessions(dir);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }.start();
+    }
+
+    /**
+     * Delete the oldest recordings past the newest KEPT_SESSIONS.
+     * @param dir
+     */
+    private static void pruneSessions(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= KEPT_SESSIONS) {
+            return;
+        }
+        // Named by the time they were saved, so sorting by name is oldest first
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - KEPT_SESSIONS; i++) {
+            files[i].delete();
+        }
+    }
+
+    /**
+     * Put the screen back how it is at the start of a game, after the game
+     * has been reset.
+     */
+    private void clearScreen() {
+        ((GameSurfaceView) findViewById(R.id.surfaceView)).closePlacement();
+        for (ImageView t : towerImages) {
+            if (t != null) {
+                t.setImageResource(R.drawable.tower_placeholder);
+            }
+        }
+        setTowersVisible(towerImages, true);
+        ((Button) findViewById(R.id.startStop)).setText(R.string.startGame);
+    }
+
     /**
      * Create a dialog that shows a message.
      * @param msg Message to be shown in dialog.
@@ -273,9 +405,7 @@ public class MainActivity extends AppCompatActivity implements Observer {
                         intent.removeExtra(StoreFragment.EXTRA_TOWER_POSITION);
                     }
 
-                    // Finish activity and restart
-                    finish();
-                    startActivity(intent);
+                    clearScreen();
                 }
             }
         });
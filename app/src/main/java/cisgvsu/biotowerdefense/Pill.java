@@ -78,17 +78,18 @@ public class Pill {
 
     /**
      * Update this pill's position.
+     * @param distance How far it moved, in pixels.
      */
-    public void updatePosition() {
+    public void updatePosition(float distance) {
         switch (origin) {
             case 2:
-                x -= 3;
+                x -= distance;
                 break;
             case 0:
             case 1:
             case 3:
             case 4:
-                y += 3;
+                y += distance;
                 break;
         }
     }
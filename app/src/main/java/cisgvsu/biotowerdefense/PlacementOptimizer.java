@@ -0,0 +1,505 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Searches for a good order to place and buy towers in, by playing each
+ * candidate out in headless games over several seeds. It's a beam search:
+ * starting from where to put the free penicillin tower, each round tries
+ * every next purchase on the best plans so far and keeps the best of
+ * those. Used to give the player hints, and to check that a balance change
+ * still leaves a way to win.
+ *
+ * A game can't be copied part way through, so shared openings are reused
+ * by result instead. A plan only plays differently from the plan it
+ * extends once its last purchase can be afforded, so if the shorter plan's
+ * game never had the money for it after its own purchases were done, the
+ * longer plan's game would have gone exactly the same way and it isn't
+ * played again.
+ */
+public class PlacementOptimizer {
+    /**
+     * One thing to do, in order: place the free tower from the inventory,
+     * or buy a tower as soon as there's money for it. Buying into a slot
+     * that has a tower swaps it, and the old one goes to the inventory.
+     */
+    public static class Step {
+        final boolean place;
+        final int slot;
+        final AntibioticType type;
+
+        Step(boolean place, int slot, AntibioticType type) {
+            this.place = place;
+            this.slot = slot;
+            this.type = type;
+        }
+
+        @Override
+        public String toString() {
+            return (place ? "place " : "buy ") + slot + " " + type.name();
+        }
+    }
+
+    /**
+     * The steps a player follows, in order.
+     */
+    public static class Plan {
+        final Step[] steps;
+
+        Plan(Step... steps) {
+            this.steps = steps;
+        }
+
+        /**
+         * Get this plan with one more purchase on the end.
+         * @param slot
+         * @param type
+         * @return
+         */
+        Plan then(int slot, AntibioticType type) {
+            Step[] longer = Arrays.copyOf(steps, steps.length + 1);
+            longer[steps.length] = new Step(false, slot, type);
+            return new Plan(longer);
+        }
+
+        /**
+         * Get the plan this one extends, without its last step.
+         * @return Null for an opening.
+         */
+        Plan parent() {
+            return steps.length > 1 ? new Plan(Arrays.copyOf(steps, steps.length - 1)) : null;
+        }
+
+        /**
+         * Get which tower would be in a slot once every step is done.
+         * @param slot
+         * @return Null if none.
+         */
+        AntibioticType typeAt(int slot) {
+            AntibioticType type = null;
+            for (Step step : steps) {
+                if (step.slot == slot) {
+                    type = step.type;
+                }
+            }
+            return type;
+        }
+
+        public Step[] getSteps() {
+            return steps;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < steps.length; i++) {
+                out.append(i == 0 ? "" : ", ").append(steps[i]);
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * How one game of a plan went.
+     */
+    static class Outcome {
+        /** How long it lasted, the horizon if it was never lost. */
+        long survivedMillis;
+        int score;
+        int kills;
+
+        /** Most money there was after every step was done, -1 if they never all were. */
+        int moneyAfterSteps = -1;
+
+        /** True if this was taken from the shorter plan's game instead of played. */
+        boolean reused;
+
+        /**
+         * Get this outcome for a longer plan whose last step never happened.
+         * @return
+         */
+        Outcome reuse() {
+            Outcome copy = new Outcome();
+            copy.survivedMillis = survivedMillis;
+            copy.score = score;
+            copy.kills = kills;
+            copy.reused = true;
+            return copy;
+        }
+    }
+
+    /**
+     * How a plan did over every seed.
+     */
+    public static class Result {
+        final Plan plan;
+        final Outcome[] outcomes;
+        final long horizon;
+
+        Result(Plan plan, Outcome[] outcomes, long horizon) {
+            this.plan = plan;
+            this.outcomes = outcomes;
+            this.horizon = horizon;
+        }
+
+        public Plan getPlan() {
+            return plan;
+        }
+
+        /**
+         * Get how many seeds the plan lasted the whole horizon on.
+         * @return
+         */
+        public int getWins() {
+            int wins = 0;
+            for (Outcome outcome : outcomes) {
+                if (outcome.survivedMillis >= horizon) {
+                    wins++;
+                }
+            }
+            return wins;
+        }
+
+        /**
+         * Check if the plan lasted the whole horizon on every seed.
+         * @return
+         */
+        public boolean isWin() {
+            return getWins() == outcomes.length;
+        }
+
+        public double getMeanSurvivedMillis() {
+            double total = 0;
+            for (Outcome outcome : outcomes) {
+                total += outcome.survivedMillis;
+            }
+            return total / outcomes.length;
+        }
+
+        public double getMeanScore() {
+            double total = 0;
+            for (Outcome outcome : outcomes) {
+                total += outcome.score;
+            }
+            return total / outcomes.length;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s (won %d/%d, lasted %.1fs, score %.0f)", plan,
+                    getWins(), outcomes.length, getMeanSurvivedMillis() / 1000, getMeanScore());
+        }
+    }
+
+    /** Best first: most wins, then lasted longest, then highest score. */
+    private static final Comparator<Result> BEST_FIRST = new Comparator<Result>() {
+        @Override
+        public int compare(Result a, Result b) {
+            if (a.getWins() != b.getWins()) {
+                return b.getWins() - a.getWins();
+            }
+            int lasted = Double.compare(b.getMeanSurvivedMillis(), a.getMeanSurvivedMillis());
+            return lasted != 0 ? lasted : Double.compare(b.getMeanScore(), a.getMeanScore());
+        }
+    };
+
+    private long horizon = 300000;
+    private long clock = 20;
+    private int seeds = 8;
+    private int beamWidth = 6;
+    private int maxSteps = 6;
+    private int width = 1920;
+    private int height = 1080;
+    private final WorkerPool pool;
+
+    /** Every plan played so far, by its text. */
+    private final HashMap<String, Result> cache = new HashMap<>();
+
+    private int played;
+    private int reused;
+
+    /**
+     * Create an optimizer that plays games on a pool of threads.
+     * @param threads How many games to play at once.
+     */
+    public PlacementOptimizer(int threads) {
+        this.pool = new WorkerPool(threads);
+    }
+
+    /**
+     * Set how long a plan has to last to win.
+     * @param millis Game time.
+     */
+    public void setHorizon(long millis) {
+        this.horizon = millis;
+    }
+
+    /**
+     * Set how many seeds every plan is played on.
+     * @param seeds
+     */
+    public void setSeeds(int seeds) {
+        this.seeds = seeds;
+    }
+
+    /**
+     * Set how many of the best plans are kept each round.
+     * @param width
+     */
+    public void setBeamWidth(int width) {
+        this.beamWidth = width;
+    }
+
+    /**
+     * Set the most steps a plan can have, counting placing the free tower.
+     * @param steps
+     */
+    public void setMaxSteps(int steps) {
+        this.maxSteps = steps;
+    }
+
+    /**
+     * Find the best plan.
+     * @return How it did.
+     */
+    public Result optimize() {
+        List<Plan> openings = new ArrayList<>();
+        for (int slot = 0; slot < Game.NUM_TOWERS; slot++) {
+            openings.add(new Plan(new Step(true, slot, AntibioticType.penicillin)));
+        }
+        List<Result> beam = best(evaluate(openings));
+
+        for (int round = 1; round < maxSteps; round++) {
+            List<Plan> children = new ArrayList<>();
+            for (Result result : beam) {
+                if (result.plan.steps.length != round) {
+                    // Kept from an earlier round without growing
+                    continue;
+                }
+                for (int slot = 0; slot < Game.NUM_TOWERS; slot++) {
+                    for (AntibioticType type : AntibioticType.values()) {
+                        if (result.plan.typeAt(slot) != type) {
+                            children.add(result.plan.then(slot, type));
+                        }
+                    }
+                }
+            }
+            List<Result> candidates = new ArrayList<>(beam);
+            candidates.addAll(evaluate(children));
+            List<Result> next = best(candidates);
+            if (next.equals(beam)) {
+                break;
+            }
+            beam = next;
+        }
+        return beam.get(0);
+    }
+
+    /**
+     * Get how many games have been played.
+     * @return
+     */
+    public int getPlayed() {
+        return played;
+    }
+
+    /**
+     * Get how many games were skipped by reusing a shorter plan's game.
+     * @return
+     */
+    public int getReused() {
+        return reused;
+    }
+
+    /**
+     * Stop the optimizer's threads. Call this when done with it.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Sort results best first and keep the beam's worth.
+     */
+    private List<Result> best(List<Result> results) {
+        Collections.sort(results, BEST_FIRST);
+        return new ArrayList<>(results.subList(0, Math.min(beamWidth, results.size())));
+    }
+
+    /**
+     * Play every plan on every seed, skipping plans that have been played
+     * already and games that would go the same as the shorter plan's.
+     * @param plans
+     * @return Each plan's result, in the same order.
+     */
+    List<Result> evaluate(List<Plan> plans) {
+        final List<Plan> toPlay = new ArrayList<>();
+        final List<Integer> toPlaySeed = new ArrayList<>();
+        HashMap<String, Outcome[]> pending = new HashMap<>();
+        for (Plan plan : plans) {
+            String key = plan.toString();
+            if (cache.containsKey(key) || pending.containsKey(key)) {
+                continue;
+            }
+            Outcome[] outcomes = new Outcome[seeds];
+            pending.put(key, outcomes);
+            Plan parent = plan.parent();
+            Result shorter = parent == null ? null : cache.get(parent.toString());
+            int cost = AntibioticType.getCost(plan.steps[plan.steps.length - 1].type);
+            for (int seed = 0; seed < seeds; seed++) {
+                if (shorter != null && shorter.outcomes[seed].moneyAfterSteps < cost) {
+                    outcomes[seed] = shorter.outcomes[seed].reuse();
+                    reused++;
+                } else {
+                    toPlay.add(plan);
+                    toPlaySeed.add(seed);
+                }
+            }
+        }
+
+        final Outcome[] finished = new Outcome[toPlay.size()];
+        pool.forRange(toPlay.size(), 1, new WorkerPool.RangeTask() {
+            @Override
+            public void run(int chunk, int from, int to) {
+                // One game per chunk, reset between plans
+                Game game = null;
+                for (int i = from; i < to; i++) {
+                    game = newGame(game);
+                    finished[i] = play(game, toPlay.get(i), toPlaySeed.get(i));
+                }
+            }
+        });
+        played += finished.length;
+        for (int i = 0; i < finished.length; i++) {
+            pending.get(toPlay.get(i).toString())[toPlaySeed.get(i)] = finished[i];
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Plan plan : plans) {
+            String key = plan.toString();
+            Result result = cache.get(key);
+            if (result == null) {
+                result = new Result(plan, pending.get(key), horizon);
+                cache.put(key, result);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Get a game ready to play a plan on, reusing the last one if there is one.
+     * @param game Null to make a new one.
+     * @return
+     */
+    Game newGame(Game game) {
+        if (game == null) {
+            game = new Game();
+            game.setSize(width, height);
+            game.setThreads(1);
+        } else {
+            game.reset();
+        }
+        game.advance(0);
+        return game;
+    }
+
+    /**
+     * Play a plan out in a fresh or reset game, until it's lost or the
+     * horizon is reached.
+     * @param game
+     * @param plan
+     * @param seed
+     * @return
+     */
+    Outcome play(Game game, Plan plan, long seed) {
+        Outcome outcome = new Outcome();
+        game.setSeed(seed);
+        game.restartGame();
+        long time = 0;
+        int next = 0;
+        while (time < horizon && !game.isLost()) {
+            if (next < plan.steps.length) {
+                Step step = plan.steps[next];
+                if (step.place) {
+                    game.takeOutOfInventoryAndAdd(step.type, step.slot);
+                    next++;
+                } else if (game.getMoney() >= AntibioticType.getCost(step.type)) {
+                    game.buyTower(step.type, step.slot);
+                    next++;
+                }
+            } else {
+                outcome.moneyAfterSteps = Math.max(outcome.moneyAfterSteps, game.getMoney());
+            }
+            game.advance(clock);
+            time += clock;
+        }
+        outcome.survivedMillis = game.isLost() ? time : horizon;
+        outcome.score = game.getScore();
+        outcome.kills = game.getEconomy().getCount(Economy.KILLS);
+        return outcome;
+    }
+
+    /**
+     * Find the best plan and print it. Settings are given as name=value:
+     * horizon (milliseconds), seeds, beam, steps and threads. Exits with 1
+     * if the best plan doesn't win on every seed, so it can check that a
+     * balance change still leaves a way to win.
+     * @param args
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("threads=")) {
+                threads = Integer.parseInt(arg.substring(8));
+            }
+        }
+        PlacementOptimizer optimizer = new PlacementOptimizer(threads);
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2) {
+                System.err.println("Expected name=value: " + arg);
+                System.exit(2);
+            }
+            switch (pair[0]) {
+                case "horizon":
+                    optimizer.setHorizon(Long.parseLong(pair[1]));
+                    break;
+                case "seeds":
+                    optimizer.setSeeds(Integer.parseInt(pair[1]));
+                    break;
+                case "beam":
+                    optimizer.setBeamWidth(Integer.parseInt(pair[1]));
+                    break;
+                case "steps":
+                    optimizer.setMaxSteps(Integer.parseInt(pair[1]));
+                    break;
+                case "threads":
+                    break;
+                default:
+                    System.err.println("Unknown setting " + pair[0]);
+                    System.exit(2);
+            }
+        }
+
+        long start = System.nanoTime();
+        Result best;
+        try {
+            best = optimizer.optimize();
+        } finally {
+            optimizer.shutdown();
+        }
+        System.out.println(best);
+        System.out.println(String.format(Locale.US, "Played %d games, reused %d, in %.1fs",
+                optimizer.getPlayed(), optimizer.getReused(), (System.nanoTime() - start) / 1e9));
+        if (!best.isWin()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package cisgvsu.biotowerdefense;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * The store and inventory, drawn right on top of the game. Tapping a tower
+ * slot opens it, and picking a tower sends the game a command to buy or
+ * place it, without leaving the game screen.
+ *
+ * The menu is built once when it's opened and swapped in whole, so the
+ * drawing thread can draw it while the UI thread handles taps.
+ */
+public class PlacementOverlay {
+    /**
+     * Gets told when the player picks a tower or closes the overlay.
+     */
+    public interface Listener {
+        /**
+         * A tower was bought or placed from the inventory.
+         * @param position The slot it's going in.
+         * @param type
+         */
+        void onPlaced(int position, AntibioticType type);
+
+        /**
+         * The overlay was closed, whether or not anything was picked.
+         */
+        void onClosed();
+    }
+
+    /** Height of one row, in pixels. */
+    private static final int ROW_HEIGHT = 110;
+
+    /** Height of the title at the top of the panel, in pixels. */
+    private static final int HEADER_HEIGHT = 100;
+
+    /**
+     * What's in the overlay while it's open.
+     */
+    private static class Menu {
+        final int position;
+        final AntibioticType[] types;
+        final boolean[] fromInventory;
+        final boolean[] enabled;
+        final String[] labels;
+        final String title;
+
+        Menu(int position, int rows, String title) {
+            this.position = position;
+            this.types = new AntibioticType[rows];
+            this.fromInventory = new boolean[rows];
+            this.enabled = new boolean[rows];
+            this.labels = new String[rows];
+            this.title = title;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final Paint panelPaint;
+    private final Paint rowPaint;
+    private final Paint disabledPaint;
+    private final Paint textPaint;
+
+    /** Null while the overlay is closed. */
+    private volatile Menu menu;
+    private Listener listener;
+
+    /**
+     * Create a closed overlay for a screen.
+     * @param width
+     * @param height
+     */
+    public PlacementOverlay(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        panelPaint = new Paint();
+        panelPaint.setColor(Color.argb(220, 40, 40, 40));
+        rowPaint = new Paint();
+        rowPaint.setColor(Color.argb(255, 90, 130, 90));
+        disabledPaint = new Paint();
+        disabledPaint.setColor(Color.argb(255, 90, 90, 90));
+        textPaint = new Paint();
+        textPaint.setTextSize(45);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * Set who gets told when a tower is picked.
+     * @param listener
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Open the overlay for a tower slot, listing every tower in the store
+     * and whatever is in the inventory.
+     * @param game
+     * @param position The slot a picked tower goes in.
+     */
+    public void open(Game game, int position) {
+        AntibioticType[] all = AntibioticType.values();
+        Inventory inventory = game.getInventory();
+        int money = game.getMoney();
+
+        // Store first, then inventory, then close
+        Menu m = new Menu(position, all.length + inventory.getTypeCount() + 1, "Tower " + (position + 1) + "  -  Money: " + money);
+        int row = 0;
+        for (AntibioticType type : all) {
+            int cost = AntibioticType.getCost(type);
+            m.types[row] = type;
+            m.enabled[row] = cost <= money;
+            m.labels[row] = "Buy " + AntibioticType.toString(type) + " - " + cost;
+            row++;
+        }
+        for (AntibioticType type : all) {
+            if (inventory.get(type) > 0) {
+                m.types[row] = type;
+                m.fromInventory[row] = true;
+                m.enabled[row] = true;
+                m.labels[row] = "Place " + AntibioticType.toString(type) + " (" + inventory.get(type) + " left)";
+                row++;
+            }
+        }
+        m.enabled[row] = true;
+        m.labels[row] = "Close";
+        menu = m;
+    }
+
+    /**
+     * Close the overlay without picking anything.
+     */
+    public void close() {
+        if (menu != null) {
+            menu = null;
+            if (listener != null) {
+                listener.onClosed();
+            }
+        }
+    }
+
+    /**
+     * Check if the overlay is showing.
+     * @return
+     */
+    public boolean isOpen() {
+        return menu != null;
+    }
+
+    /**
+     * Draw the overlay, if it's open.
+     * @param canvas
+     */
+    public void draw(Canvas canvas) {
+        Menu m = menu;
+        if (m == null) {
+            return;
+        }
+        int left = width / 5;
+        int right = width - left;
+        int top = top(m);
+        canvas.drawRect(left, top, right, top + HEADER_HEIGHT + m.labels.length * ROW_HEIGHT, panelPaint);
+        canvas.drawText(m.title, width / 2, top + HEADER_HEIGHT * 2 / 3, textPaint);
+        for (int i = 0; i < m.labels.length; i++) {
+            if (m.labels[i] == null) {
+                continue;
+            }
+            int y = top + HEADER_HEIGHT + i * ROW_HEIGHT;
+            canvas.drawRect(left + 20, y + 10, right - 20, y + ROW_HEIGHT - 10,
+                    m.enabled[i] ? rowPaint : disabledPaint);
+            canvas.drawText(m.labels[i], width / 2, y + ROW_HEIGHT * 2 / 3, textPaint);
+        }
+    }
+
+    /**
+     * Handle a tap while the overlay is open. Picking a tower sends the game
+     * the command to buy or place it and closes the overlay, and so does
+     * tapping close or anywhere outside the panel.
+     * @param game
+     * @param x
+     * @param y
+     * @return True if the overlay was open and took the tap.
+     */
+    public boolean onTap(Game game, float x, float y) {
+        Menu m = menu;
+        if (m == null) {
+            return false;
+        }
+        int left = width / 5;
+        int row = (int) Math.floor((y - top(m) - HEADER_HEIGHT) / ROW_HEIGHT);
+        if (x < left || x > width - left || row < 0 || row >= m.labels.length || m.labels[row] == null) {
+            close();
+            return true;
+        }
+        if (!m.enabled[row]) {
+            // Can't afford it, leave the overlay up
+            return true;
+        }
+
+        AntibioticType type = m.types[row];
+        if (type != null) {
+            if (m.fromInventory[row]) {
+                game.takeOutOfInventoryAndAdd(type, m.position);
+            } else if (AntibioticType.getCost(type) <= game.getMoney()) {
+                game.buyTower(type, m.position);
+            } else {
+                return true;
+            }
+            if (listener != null) {
+                listener.onPlaced(m.position, type);
+            }
+        }
+        close();
+        return true;
+    }
+
+    /**
+     * Get where the top of the panel goes so it's centred on the screen.
+     */
+    private int top(Menu m) {
+        return Math.max(0, (height - HEADER_HEIGHT - m.labels.length * ROW_HEIGHT) / 2);
+    }
+}
@@ -0,0 +1,119 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Decides when resistance shows up based on selection pressure. Every shot at a
+ * bacteria that isn't resistant adds exposure for its (bacteria type, antibiotic)
+ * pair, and a shot that doesn't kill counts extra, since surviving a dose is what
+ * selects for resistance. Once a tick, each pair makes one binomial draw over all
+ * the exposure it built up to see how many resistant mutants appeared.
+ */
+public class ResistanceModel {
+    /** How much exposure a shot that doesn't kill counts for. */
+    private static final int SUB_LETHAL_WEIGHT = 3;
+
+    /** Above this many expected mutants, the draw uses a normal approximation. */
+    private static final double NORMAL_APPROXIMATION = 20;
+
+    private static final int NUM_ANTIBIOTICS = AntibioticType.values().length;
+
+    /** Exposure built up since the last draw, indexed by pair. Only the
+     *  simulation thread touches it. */
+    private final long[] exposure = new long[BacteriaType.values().length * NUM_ANTIBIOTICS];
+
+    private final Random random;
+
+    /**
+     * Create a model with no exposure yet.
+     * @param random Where the random draws come from.
+     */
+    public ResistanceModel(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Record one shot at a bacteria that wasn't resistant.
+     * @param bacteriaType Type of bacteria that was shot.
+     * @param antibiotic Antibiotic it was shot with.
+     * @param subLethal True if the shot didn't kill it.
+     */
+    public void recordExposure(BacteriaType bacteriaType, AntibioticType antibiotic, boolean subLethal) {
+        exposure[pair(bacteriaType, antibiotic)] += subLethal ? SUB_LETHAL_WEIGHT : 1;
+    }
+
+    /**
+     * Get the exposure a pair has built up since its last draw.
+     * @param bacteriaType
+     * @param antibiotic
+     * @return
+     */
+    public long getExposure(BacteriaType bacteriaType, AntibioticType antibiotic) {
+        return exposure[pair(bacteriaType, antibiotic)];
+    }
+
+    /**
+     * Use up the exposure a pair has built up and draw how many resistant
+     * mutants came out of it.
+     * @param bacteriaType
+     * @param antibiotic
+     * @return How many bacteria of the type became resistant, usually 0.
+     */
+    public int draw(BacteriaType bacteriaType, AntibioticType antibiotic) {
+        int i = pair(bacteriaType, antibiotic);
+        long n = exposure[i];
+        exposure[i] = 0;
+        return binomial(n, AntibioticType.getResistanceChance(antibiotic));
+    }
+
+    /**
+     * Forget all exposure.
+     */
+    public void clear() {
+        Arrays.fill(exposure, 0);
+    }
+
+    /**
+     * Draw from a binomial distribution with one random number, by walking
+     * up the distribution until it passes the number drawn. Big draws use
+     * a normal approximation instead.
+     * @param n Number of trials.
+     * @param p Chance of each one succeeding.
+     * @return How many succeeded.
+     */
+    int binomial(long n, double p) {
+        if (n <= 0 || p <= 0) {
+            return 0;
+        }
+        if (p >= 1) {
+            // Every one succeeds, and the walk below would divide by q = 0
+            return (int) Math.min(Integer.MAX_VALUE, n);
+        }
+        double mean = n * p;
+        if (mean >= NORMAL_APPROXIMATION) {
+            double sd = Math.sqrt(mean * (1 - p));
+            long k = Math.round(mean + sd * random.nextGaussian());
+            return (int) Math.max(0, Math.min(n, k));
+        }
+
+        double q = 1 - p;
+        double u = random.nextDouble();
+        double prob = Math.pow(q, n);
+        double cdf = prob;
+        int k = 0;
+        while (u > cdf && k < n && prob > 0) {
+            prob *= (double) (n - k) / (k + 1) * p / q;
+            k++;
+            cdf += prob;
+        }
+        return k;
+    }
+
+    /**
+     * Get the index for a (bacteria type, antibiotic) pair.
+     */
+    private static int pair(BacteriaType bacteriaType, AntibioticType antibiotic) {
+        return bacteriaType.ordinal() * NUM_ANTIBIOTICS + antibiotic.ordinal();
+    }
+}
@@ -0,0 +1,371 @@
+package cisgvsu.biotowerdefense;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A game set up ahead of time, to be played out without a screen by the
+ * {@link ScenarioRunner}. It's read from a text file, one setting or event
+ * per line:
+ *
+ * <pre>
+ * # Anything after a # is ignored
+ * name endless          What to call it in the report
+ * seed 42               Seed for the game's random rolls
+ * duration 300000       Game time to run for, in milliseconds
+ * clock 10              Game time each step moves forward, in milliseconds
+ * screen 1920 1080      Size of the screen the path is laid out on
+ * threads 4             Threads to split big phases across, 0 for the shared pool
+ * max_bacteria 100000   Cap on how many bacteria are alive at once
+ * colonies on           Turn colonies, reproduction, gene_transfer or
+ *                       auto_spawn (a bacteria every second) on or off
+ * endless on            Count bacteria that get past the towers instead of losing
+ * paused on             Start paused, waiting for a resume event
+ * tower 0 penicillin    Put a tower in a slot for free before it starts
+ * at 5000 wave staph 50 At a time in milliseconds, add a group of bacteria,
+ * at 8000 buy 1 vancomycin      buy or place a tower from the inventory,
+ * at 9000 place 2 penicillin    remove a tower, or pause and resume.
+ * at 10000 remove 1
+ * at 12000 pause
+ * at 15000 resume
+ * expect_hash 1f3a...   What {@link Game#getStateHash()} should be at the end
+ * p99_budget 200        Slowest a systems tick can take, leaving out the slowest 1%,
+ *                       in microseconds
+ * </pre>
+ *
+ * Events at the same time happen in the order they're written. A game's
+ * {@link Game#getSession()} is written in this format, so it can be
+ * replayed.
+ */
+public class Scenario {
+    /**
+     * Something that happens part way through.
+     */
+    public static class Event {
+        /** When it happens, in milliseconds of game time. */
+        final long time;
+
+        /** What happens, like "wave", and what it happens with. */
+        final String[] args;
+
+        Event(long time, String[] args) {
+            this.time = time;
+            this.args = args;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder("at ").append(time);
+            for (String arg : args) {
+                out.append(' ').append(arg);
+            }
+            return out.toString();
+        }
+    }
+
+    private String name = "scenario";
+    private long seed;
+    private long duration = 60000;
+    private long clock = 10;
+    private int width = 1920;
+    private int height = 1080;
+    private int threads;
+    private int maxBacteria = -1;
+    private boolean colonies;
+    private boolean reproduction;
+    private boolean geneTransfer;
+    private boolean autoSpawn = true;
+    private boolean endless;
+    private boolean paused;
+    private Long expectedHash;
+    private long p99Budget = -1;
+
+    /** Towers that are there from the start, by slot. */
+    private final AntibioticType[] towers = new AntibioticType[5];
+
+    /** Everything that happens part way through, in time order. */
+    private final List<Event> events = new ArrayList<>();
+
+    /**
+     * Read a scenario file.
+     * @param path
+     * @return
+     * @throws IOException If it can't be read or has a line that doesn't make sense.
+     */
+    public static Scenario load(String path) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(path), "UTF-8");
+        try {
+            return read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Read a scenario.
+     * @param in
+     * @return
+     * @throws IOException If it can't be read or has a line that doesn't make sense.
+     */
+    public static Scenario read(Reader in) throws IOException {
+        Scenario scenario = new Scenario();
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                scenario.parse(line.split("\\s+"));
+            } catch (RuntimeException e) {
+                throw new IOException("Line " + number + ": " + line + " (" + e.getMessage() + ")");
+            }
+        }
+
+        // Sorting is stable, so events at the same time stay in the order they were written
+        Collections.sort(scenario.events, new Comparator<Event>() {
+            @Override
+            public int compare(Event a, Event b) {
+                return a.time < b.time ? -1 : a.time == b.time ? 0 : 1;
+            }
+        });
+        return scenario;
+    }
+
+    /**
+     * Make sense of one line.
+     * @param words
+     */
+    private void parse(String[] words) {
+        switch (words[0]) {
+            case "name":
+                name = words[1];
+                break;
+            case "seed":
+                seed = Long.parseLong(words[1]);
+                break;
+            case "duration":
+                duration = Long.parseLong(words[1]);
+                break;
+            case "clock":
+                clock = Long.parseLong(words[1]);
+                if (clock <= 0) {
+                    throw new IllegalArgumentException("clock has to be more than 0");
+                }
+                break;
+            case "screen":
+                width = Integer.parseInt(words[1]);
+                height = Integer.parseInt(words[2]);
+                break;
+            case "threads":
+                threads = Integer.parseInt(words[1]);
+                break;
+            case "max_bacteria":
+                maxBacteria = Integer.parseInt(words[1]);
+                break;
+            case "colonies":
+                colonies = onOff(words[1]);
+                break;
+            case "reproduction":
+                reproduction = onOff(words[1]);
+                break;
+            case "gene_transfer":
+                geneTransfer = onOff(words[1]);
+                break;
+            case "auto_spawn":
+                autoSpawn = onOff(words[1]);
+                break;
+            case "endless":
+                endless = onOff(words[1]);
+                break;
+            case "paused":
+                paused = onOff(words[1]);
+                break;
+            case "expect_hash":
+                expectedHash = new BigInteger(words[1], 16).longValue();
+                break;
+            case "p99_budget":
+                p99Budget = Long.parseLong(words[1]);
+                break;
+            case "tower":
+                towers[Integer.parseInt(words[1])] = antibiotic(words[2]);
+                break;
+            case "at":
+                String[] args = new String[words.length - 2];
+                System.arraycopy(words, 2, args, 0, args.length);
+                check(args);
+                events.add(new Event(Long.parseLong(words[1]), args));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown setting " + words[0]);
+        }
+    }
+
+    /**
+     * Make sure an event makes sense when it's read, not part way through running.
+     * @param args
+     */
+    private static void check(String[] args) {
+        switch (args[0]) {
+            case "wave":
+                bacteria(args[1]);
+                Integer.parseInt(args[2]);
+                break;
+            case "buy":
+            case "place":
+                Integer.parseInt(args[1]);
+                antibiotic(args[2]);
+                break;
+            case "remove":
+                Integer.parseInt(args[1]);
+                break;
+            case "pause":
+            case "resume":
+                break;
+            default:
+                throw new IllegalArgumentException("unknown event " + args[0]);
+        }
+    }
+
+    /**
+     * Create a game set up the way this scenario says, with the starting
+     * towers in and running. It's moved along by hand with
+     * {@link Game#advance(long)}, there's no simulation thread.
+     * @return
+     */
+    public Game createGame() {
+        Game game = new Game();
+        game.setSize(width, height);
+        game.setSeed(seed);
+        if (threads > 0) {
+            game.setThreads(threads);
+        }
+        if (maxBacteria > 0) {
+            game.setMaxBacteria(maxBacteria);
+        }
+        game.setColoniesEnabled(colonies);
+        game.setReproductionEnabled(reproduction);
+        game.setGeneTransferEnabled(geneTransfer);
+        game.setAutoSpawn(autoSpawn);
+        game.setEndless(endless);
+        for (int i = 0; i < towers.length; i++) {
+            if (towers[i] != null) {
+                game.placeTower(towers[i], i);
+            }
+        }
+        if (!paused) {
+            game.restartGame();
+        }
+        game.advance(0);
+        return game;
+    }
+
+    /**
+     * Make an event happen in a game.
+     * @param event
+     * @param game
+     */
+    public static void apply(Event event, Game game) {
+        String[] args = event.args;
+        switch (args[0]) {
+            case "wave":
+                game.spawn(bacteria(args[1]), Integer.parseInt(args[2]));
+                break;
+            case "buy":
+                game.buyTower(antibiotic(args[2]), Integer.parseInt(args[1]));
+                break;
+            case "place":
+                game.takeOutOfInventoryAndAdd(antibiotic(args[2]), Integer.parseInt(args[1]));
+                break;
+            case "remove":
+                game.removeTower(Integer.parseInt(args[1]));
+                break;
+            case "pause":
+                game.stopGame();
+                break;
+            case "resume":
+                game.restartGame();
+                break;
+        }
+    }
+
+    private static boolean onOff(String word) {
+        if (word.equals("on")) {
+            return true;
+        } else if (word.equals("off")) {
+            return false;
+        }
+        throw new IllegalArgumentException("expected on or off");
+    }
+
+    private static AntibioticType antibiotic(String name) {
+        AntibioticType type = AntibioticType.stringToEnum(name);
+        if (type == null) {
+            throw new IllegalArgumentException("unknown antibiotic " + name);
+        }
+        return type;
+    }
+
+    private static BacteriaType bacteria(String name) {
+        BacteriaType type = BacteriaType.stringToEnum(name);
+        if (type == null) {
+            throw new IllegalArgumentException("unknown bacteria " + name);
+        }
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getClock() {
+        return clock;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * Get the state hash the game should end up with.
+     * @return Null if the scenario doesn't say.
+     */
+    public Long getExpectedHash() {
+        return expectedHash;
+    }
+
+    /**
+     * Get the 99th percentile systems tick time the scenario has to stay under.
+     * @return Microseconds, -1 if the scenario doesn't say.
+     */
+    public long getP99Budget() {
+        return p99Budget;
+    }
+}
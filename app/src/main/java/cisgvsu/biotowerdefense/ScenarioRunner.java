@@ -0,0 +1,364 @@
+package cisgvsu.biotowerdefense;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Plays {@link Scenario}s out as fast as possible with no screen, and
+ * reports how fast the simulation ran and how the game went, as JSON.
+ * Meant to be run from the command line, like in a nightly job:
+ *
+ * <pre>
+ * ./gradlew :app:runScenario -Pscenario=app/scenarios/endless.scenario
+ * </pre>
+ */
+public class ScenarioRunner {
+    /** How often peak counts are sampled, in milliseconds of game time. */
+    private static final long SAMPLE_MILLIS = 100;
+
+    /**
+     * How one run went.
+     */
+    public static class Report {
+        String name;
+        long seed;
+
+        /** Game time that was played, in milliseconds. */
+        long gameMillis;
+
+        /** Game time when a bacteria got past the towers, -1 if none did. */
+        long lostAtMillis = -1;
+
+        /** Real time the run took, in nanoseconds. */
+        long wallNanos;
+
+        /** How long each systems tick took, in nanoseconds. */
+        long[] tickNanos = new long[0];
+
+        /** Systems ticks run, and each system's name and total time. */
+        long systemTicks;
+        String[] phaseNames;
+        long[] phaseNanos;
+
+        int peakBacteria;
+        long peakPopulation;
+        int peakPills;
+
+        /** Bytes allocated on every thread during the run, -1 if the JVM can't tell. */
+        long allocatedBytes = -1;
+
+        int score;
+        int money;
+        int kills;
+        int bacteriaLeft;
+
+        /** Bacteria that got past the towers in endless mode. */
+        long escaped;
+
+        /** The game's state hash at the end. */
+        long stateHash;
+
+        /** What didn't match the scenario's expectations. */
+        List<String> problems = new ArrayList<>();
+
+        /**
+         * Get the slowest a systems tick was, leaving out the slowest 1%.
+         * @return Nanoseconds.
+         */
+        public long getP99TickNanos() {
+            return percentile(0.99);
+        }
+
+        public long getSystemTicks() {
+            return systemTicks;
+        }
+
+        public boolean isLost() {
+            return lostAtMillis >= 0;
+        }
+
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        /**
+         * Get what didn't match the scenario's expected state hash or fit
+         * in its tick time budget.
+         * @return Empty if everything did.
+         */
+        public List<String> getProblems() {
+            return problems;
+        }
+
+        /**
+         * Check the run against what the scenario expects.
+         * @param scenario
+         * @param budgetScale How much to stretch the tick time budget by,
+         *                    like for a slow machine.
+         */
+        void check(Scenario scenario, double budgetScale) {
+            problems.clear();
+            Long expected = scenario.getExpectedHash();
+            if (expected != null && expected != stateHash) {
+                problems.add("state hash is " + Long.toHexString(stateHash)
+                        + ", expected " + Long.toHexString(expected));
+            }
+            long budget = scenario.getP99Budget();
+            if (budget >= 0 && getP99TickNanos() > budget * budgetScale * 1000) {
+                problems.add("p99 tick took " + number(getP99TickNanos() / 1e3)
+                        + "us, budget is " + number(budget * budgetScale) + "us");
+            }
+        }
+
+        /**
+         * Get a tick time at a percentile.
+         * @param fraction Between 0 and 1.
+         * @return Nanoseconds.
+         */
+        long percentile(double fraction) {
+            int ticks = tickNanos.length;
+            if (ticks == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(tickNanos, ticks);
+            Arrays.sort(sorted);
+            int i = (int) Math.ceil(fraction * ticks) - 1;
+            return sorted[Math.max(0, Math.min(ticks - 1, i))];
+        }
+
+        /**
+         * Write the report as JSON.
+         * @return
+         */
+        public String toJson() {
+            double wallSeconds = wallNanos / 1e9;
+            StringBuilder out = new StringBuilder();
+            out.append("{\n");
+            out.append("  \"scenario\": ").append(quote(name)).append(",\n");
+            out.append("  \"seed\": ").append(seed).append(",\n");
+            out.append("  \"gameMillis\": ").append(gameMillis).append(",\n");
+            out.append("  \"wallMillis\": ").append(number(wallNanos / 1e6)).append(",\n");
+            out.append("  \"ticks\": ").append(systemTicks).append(",\n");
+            out.append("  \"ticksPerSecond\": ").append(number(wallSeconds > 0 ? systemTicks / wallSeconds : 0)).append(",\n");
+            out.append("  \"speedup\": ").append(number(wallSeconds > 0 ? gameMillis / 1000.0 / wallSeconds : 0)).append(",\n");
+            out.append("  \"tickMicros\": {\"p50\": ").append(number(percentile(0.5) / 1e3))
+                    .append(", \"p99\": ").append(number(percentile(0.99) / 1e3))
+                    .append(", \"max\": ").append(number(percentile(1) / 1e3)).append("},\n");
+            out.append("  \"phases\": {");
+            for (int i = 0; i < phaseNames.length; i++) {
+                out.append(i == 0 ? "\n" : ",\n");
+                out.append("    ").append(quote(phaseNames[i])).append(": {\"totalMillis\": ")
+                        .append(number(phaseNanos[i] / 1e6)).append(", \"avgMicros\": ")
+                        .append(number(systemTicks > 0 ? phaseNanos[i] / 1e3 / systemTicks : 0)).append("}");
+            }
+            out.append("\n  },\n");
+            out.append("  \"peak\": {\"bacteria\": ").append(peakBacteria)
+                    .append(", \"population\": ").append(peakPopulation)
+                    .append(", \"pills\": ").append(peakPills).append("},\n");
+            out.append("  \"allocation\": {\"bytes\": ").append(allocatedBytes)
+                    .append(", \"bytesPerSecond\": ")
+                    .append(allocatedBytes < 0 ? "-1" : number(wallSeconds > 0 ? allocatedBytes / wallSeconds : 0))
+                    .append("},\n");
+            out.append("  \"outcome\": {\"lost\": ").append(isLost())
+                    .append(", \"lostAtMillis\": ").append(lostAtMillis)
+                    .append(", \"score\": ").append(score)
+                    .append(", \"money\": ").append(money)
+                    .append(", \"kills\": ").append(kills)
+                    .append(", \"bacteriaLeft\": ").append(bacteriaLeft)
+                    .append(", \"escaped\": ").append(escaped).append("},\n");
+            out.append("  \"stateHash\": ").append(quote(Long.toHexString(stateHash))).append(",\n");
+            out.append("  \"problems\": [");
+            for (int i = 0; i < problems.size(); i++) {
+                out.append(i == 0 ? "" : ", ").append(quote(problems.get(i)));
+            }
+            out.append("]\n");
+            out.append("}");
+            return out.toString();
+        }
+    }
+
+    /**
+     * Play a scenario out as fast as possible and check it against what
+     * it expects. It stops early if a bacteria gets past the towers.
+     * @param scenario
+     * @return
+     */
+    public static Report run(Scenario scenario) {
+        Report report = run(scenario, scenario.createGame());
+        report.check(scenario, 1);
+        return report;
+    }
+
+    /**
+     * Play a scenario out in a game that's already been set up for it.
+     * @param scenario
+     * @param game
+     * @return
+     */
+    static Report run(Scenario scenario, Game game) {
+        Report report = new Report();
+        report.name = scenario.getName();
+        report.seed = scenario.getSeed();
+        long clock = scenario.getClock();
+        List<Scenario.Event> events = scenario.getEvents();
+        game.getSystems().resetTimings();
+        game.getSystems().recordTicks((int) Math.min(1 << 20, scenario.getDuration() / clock));
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long time = 0;
+        long nextSample = 0;
+        int next = 0;
+        while (time < scenario.getDuration() && !game.isLost()) {
+            while (next < events.size() && events.get(next).getTime() <= time) {
+                Scenario.apply(events.get(next++), game);
+            }
+            // Stop right at the next event, so a recorded command runs at
+            // the same game time it did when it was played
+            long step = Math.min(clock, scenario.getDuration() - time);
+            if (next < events.size()) {
+                step = Math.min(step, events.get(next).getTime() - time);
+            }
+            game.advance(step);
+            time += step;
+
+            if (time >= nextSample) {
+                nextSample = time + SAMPLE_MILLIS;
+                sample(game, report);
+            }
+        }
+        report.wallNanos = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            report.allocatedBytes = allocatedAfter - allocatedBefore;
+        }
+
+        sample(game, report);
+        report.gameMillis = time;
+        if (game.isLost()) {
+            report.lostAtMillis = time;
+        }
+        SystemRunner systems = game.getSystems();
+        report.tickNanos = systems.getTickNanos();
+        report.systemTicks = systems.getTicks();
+        report.phaseNames = new String[systems.size()];
+        report.phaseNanos = new long[systems.size()];
+        for (int i = 0; i < systems.size(); i++) {
+            report.phaseNames[i] = systems.getName(i);
+            report.phaseNanos[i] = systems.getTotalNanos(i);
+        }
+        report.score = game.getScore();
+        report.money = game.getMoney();
+        report.kills = game.getEconomy().getCount(Economy.KILLS);
+        report.bacteriaLeft = game.getAllBacteria().size();
+        report.escaped = game.getEscaped();
+        report.stateHash = game.getStateHash();
+        return report;
+    }
+
+    /**
+     * Keep track of the most there have been of everything.
+     */
+    private static void sample(Game game, Report report) {
+        BacteriaStore bacteria = game.getAllBacteria();
+        long population = 0;
+        for (int i = 0; i < bacteria.size(); i++) {
+            Bacteria b = bacteria.get(i);
+            if (b != null) {
+                population += b.getPopulation();
+            }
+        }
+        report.peakBacteria = Math.max(report.peakBacteria, bacteria.size());
+        report.peakPopulation = Math.max(report.peakPopulation, population);
+        report.peakPills = Math.max(report.peakPills, game.getPills().size());
+    }
+
+    /**
+     * Get how many bytes every live thread has allocated so far, on JVMs
+     * that keep track (HotSpot does). Looked up by reflection since
+     * Android doesn't have java.lang.management.
+     * @return -1 if it isn't available.
+     */
+    private static long allocatedBytes() {
+        try {
+            Object threads = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+            Class<?> bean = Class.forName("com.sun.management.ThreadMXBean");
+            long[] ids = (long[]) bean.getMethod("getAllThreadIds").invoke(threads);
+            Method allocated = bean.getMethod("getThreadAllocatedBytes", long[].class);
+            long total = 0;
+            for (long bytes : (long[]) allocated.invoke(threads, (Object) ids)) {
+                if (bytes > 0) {
+                    total += bytes;
+                }
+            }
+            return total;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.US, "%.1f", value);
+    }
+
+    private static String quote(String text) {
+        StringBuilder out = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < ' ') {
+                out.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * Run each scenario file given and print its report. If there's more
+     * than one, the reports are printed as a JSON array. Exits with 1 if
+     * any of them didn't match its expected hash or went over its budget.
+     * @param args Paths to scenario files.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: ScenarioRunner <scenario file>...");
+            System.exit(2);
+        }
+        StringBuilder out = new StringBuilder();
+        boolean failed = false;
+        if (args.length > 1) {
+            out.append("[\n");
+        }
+        for (int i = 0; i < args.length; i++) {
+            Scenario scenario;
+            try {
+                scenario = Scenario.load(args[i]);
+            } catch (Exception e) {
+                System.err.println(args[i] + ": " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+            Report report = run(scenario);
+            failed |= !report.getProblems().isEmpty();
+            out.append(report.toJson());
+            if (i < args.length - 1) {
+                out.append(",");
+            }
+            out.append("\n");
+        }
+        if (args.length > 1) {
+            out.append("]\n");
+        }
+        System.out.print(out);
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
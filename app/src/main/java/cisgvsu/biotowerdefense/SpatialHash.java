@@ -0,0 +1,223 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the bacteria's positions for finding neighbours without
+ * checking every pair. Cells are hashed into a fixed number of buckets, and
+ * each bucket is a doubly linked list of store indices kept in plain arrays.
+ *
+ * {@link #update(BacteriaStore)} only relinks the indices whose bacteria
+ * moved into a different bucket since the last update, so keeping the grid
+ * current costs O(N) a tick with very little work for bacteria that stayed put.
+ */
+public class SpatialHash {
+    /** Number of buckets, must be a power of two. */
+    private static final int NUM_BUCKETS = 4096;
+
+    /** Width and height of one grid cell, in pixels. */
+    private final int cellSize;
+
+    /** First index in each bucket, -1 if it's empty. */
+    private final int[] head = new int[NUM_BUCKETS];
+
+    /** Next and previous index in the same bucket, -1 at the ends. */
+    private int[] next = new int[0];
+    private int[] prev = new int[0];
+
+    /** Bucket each index is linked into, -1 if it isn't. */
+    private int[] bucketOf = new int[0];
+
+    /** Number of store indices linked in at the last update. */
+    private int size;
+
+    /** Size of the scratch space a query needs. */
+    public static final int QUERY_SCRATCH = 9;
+
+    /** Buckets already visited by the current query, to skip hash collisions. */
+    private final int[] visited = new int[QUERY_SCRATCH];
+
+    /**
+     * Create an empty grid.
+     * @param cellSize Size of one cell, should be about the query radius.
+     */
+    public SpatialHash(int cellSize) {
+        this.cellSize = cellSize;
+        Arrays.fill(head, -1);
+    }
+
+    /**
+     * Bring the grid up to date with where every bacteria in the store is now.
+     * @param store
+     */
+    public void update(BacteriaStore store) {
+        int n = store.size();
+        ensureCapacity(n);
+
+        for (int i = 0; i < n; i++) {
+            Bacteria b = store.get(i);
+            int bucket = b == null ? -1 : bucketFor(b.getX(), b.getY());
+            if (bucket != bucketOf[i]) {
+                unlink(i);
+                if (bucket >= 0) {
+                    link(i, bucket);
+                }
+            }
+        }
+
+        // Drop indices that are past the end of the store now
+        for (int i = n; i < size; i++) {
+            unlink(i);
+        }
+        size = n;
+    }
+
+    /**
+     * Find the store indices of every bacteria within a radius of (x, y).
+     * The radius shouldn't be more than the cell size.
+     * @param store The store the grid was last updated from.
+     * @param x
+     * @param y
+     * @param radius
+     * @param out Filled with the indices found.
+     * @return How many indices were written to out (it stops when out is full).
+     */
+    public int query(BacteriaStore store, int x, int y, int radius, int[] out) {
+        return query(store, x, y, radius, out, visited);
+    }
+
+    /**
+     * Find the store indices of every bacteria within a radius of (x, y),
+     * using the caller's own scratch space so several threads can query
+     * at once (as long as nothing updates the grid meanwhile).
+     * @param store The store the grid was last updated from.
+     * @param x
+     * @param y
+     * @param radius
+     * @param out Filled with the indices found.
+     * @param visited Scratch space for at least 9 buckets.
+     * @return How many indices were written to out (it stops when out is full).
+     */
+    public int query(BacteriaStore store, int x, int y, int radius, int[] out, int[] visited) {
+        int found = 0;
+        int numVisited = 0;
+        long radiusSq = (long) radius * radius;
+        int cx = cell(x);
+        int cy = cell(y);
+
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int bucket = hash(cx + dx, cy + dy);
+                if (alreadyVisited(visited, bucket, numVisited)) {
+                    continue;
+                }
+                visited[numVisited++] = bucket;
+
+                for (int i = head[bucket]; i >= 0; i = next[i]) {
+                    Bacteria b = store.get(i);
+                    if (b == null) {
+                        continue;
+                    }
+                    long ox = b.getX() - x;
+                    long oy = b.getY() - y;
+                    if (ox * ox + oy * oy <= radiusSq) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Empty the grid.
+     */
+    public void clear() {
+        Arrays.fill(head, -1);
+        Arrays.fill(bucketOf, -1);
+        size = 0;
+    }
+
+    /**
+     * Check if a bucket has already been searched by this query.
+     */
+    private static boolean alreadyVisited(int[] visited, int bucket, int numVisited) {
+        for (int i = 0; i < numVisited; i++) {
+            if (visited[i] == bucket) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the bucket for a position.
+     */
+    private int bucketFor(int x, int y) {
+        return hash(cell(x), cell(y));
+    }
+
+    /**
+     * Get the cell a coordinate falls in, rounding down for negative ones too.
+     */
+    private int cell(int v) {
+        return v >= 0 ? v / cellSize : -((cellSize - 1 - v) / cellSize);
+    }
+
+    /**
+     * Hash a cell's coordinates into a bucket.
+     */
+    private static int hash(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & (NUM_BUCKETS - 1);
+    }
+
+    /**
+     * Put an index at the front of a bucket's list.
+     */
+    private void link(int i, int bucket) {
+        int first = head[bucket];
+        next[i] = first;
+        prev[i] = -1;
+        if (first >= 0) {
+            prev[first] = i;
+        }
+        head[bucket] = i;
+        bucketOf[i] = bucket;
+    }
+
+    /**
+     * Take an index out of whichever bucket's list it's in.
+     */
+    private void unlink(int i) {
+        int bucket = bucketOf[i];
+        if (bucket < 0) {
+            return;
+        }
+        if (prev[i] >= 0) {
+            next[prev[i]] = next[i];
+        } else {
+            head[bucket] = next[i];
+        }
+        if (next[i] >= 0) {
+            prev[next[i]] = prev[i];
+        }
+        bucketOf[i] = -1;
+    }
+
+    /**
+     * Grow the per-index arrays to hold at least n indices.
+     */
+    private void ensureCapacity(int n) {
+        if (n > bucketOf.length) {
+            int capacity = Math.max(n, bucketOf.length * 2);
+            int old = bucketOf.length;
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            bucketOf = Arrays.copyOf(bucketOf, capacity);
+            Arrays.fill(bucketOf, old, capacity, -1);
+        }
+    }
+}
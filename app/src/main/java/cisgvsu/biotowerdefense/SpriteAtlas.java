@@ -0,0 +1,157 @@
+package cisgvsu.biotowerdefense;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * Packs all of the small game sprites (bacteria and pills) into a single
+ * bitmap so they can be drawn together by a {@link SpriteBatch}.
+ */
+public class SpriteAtlas {
+    /** Sprite index for staph bacteria. */
+    public static final int STAPH = 0;
+
+    /** Sprite index for strep bacteria. */
+    public static final int STREP = 1;
+
+    /** Sprite index for pneumonia bacteria. */
+    public static final int PNEUMONIA = 2;
+
+    /** Sprite index for pills. */
+    public static final int PILL = 3;
+
+    /** Number of sprites in the atlas. */
+    public static final int NUM_SPRITES = 4;
+
+    /** Widest the atlas is allowed to get before starting a new row. */
+    private static final int MAX_WIDTH = 2048;
+
+    /** Empty pixels left around each sprite so filtering doesn't bleed. */
+    private static final int PADDING = 2;
+
+    /** The bitmap holding every sprite. */
+    private Bitmap bitmap;
+
+    /** Left edge of each sprite in the atlas, in pixels. */
+    private final int[] left = new int[NUM_SPRITES];
+
+    /** Top edge of each sprite in the atlas, in pixels. */
+    private final int[] top = new int[NUM_SPRITES];
+
+    /** Width of each sprite, in pixels. */
+    private final int[] width = new int[NUM_SPRITES];
+
+    /** Height of each sprite, in pixels. */
+    private final int[] height = new int[NUM_SPRITES];
+
+    /**
+     * Get every sprite and copy it into one atlas bitmap, laying them out
+     * left to right in rows. Decodes them if they aren't cached, so call it
+     * off the UI thread.
+     * @param bitmaps Where the sprites come from.
+     */
+    public SpriteAtlas(BitmapCache bitmaps) {
+        Bitmap[] sprites = new Bitmap[NUM_SPRITES];
+        sprites[STAPH] = bitmaps.get(R.drawable.bacteria_staph, 0, 0, false);
+        sprites[STREP] = bitmaps.get(R.drawable.bacteria_strep, 0, 0, false);
+        sprites[PNEUMONIA] = bitmaps.get(R.drawable.bacteria_pneumonia, 0, 0, false);
+        sprites[PILL] = bitmaps.get(R.drawable.pill, 0, 0, false);
+        pack(sprites);
+    }
+
+    /**
+     * Work out where each sprite goes, then draw them all into the atlas.
+     * The individual bitmaps stay in the cache for other screens.
+     * @param sprites The decoded sprites, indexed by sprite index.
+     */
+    private void pack(Bitmap[] sprites) {
+        int x = PADDING;
+        int y = PADDING;
+        int rowHeight = 0;
+        int atlasWidth = 0;
+        for (int i = 0; i < NUM_SPRITES; i++) {
+            width[i] = sprites[i].getWidth();
+            height[i] = sprites[i].getHeight();
+            if (x + width[i] + PADDING > MAX_WIDTH && x > PADDING) {
+                // Start a new row
+                x = PADDING;
+                y += rowHeight + PADDING;
+                rowHeight = 0;
+            }
+            left[i] = x;
+            top[i] = y;
+            x += width[i] + PADDING;
+            rowHeight = Math.max(rowHeight, height[i]);
+            atlasWidth = Math.max(atlasWidth, x);
+        }
+        int atlasHeight = y + rowHeight + PADDING;
+
+        bitmap = Bitmap.createBitmap(atlasWidth, atlasHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        for (int i = 0; i < NUM_SPRITES; i++) {
+            canvas.drawBitmap(sprites[i], left[i], top[i], null);
+        }
+    }
+
+    /**
+     * Get the sprite index to use for a type of bacteria.
+     * @param type
+     * @return
+     */
+    public static int spriteFor(BacteriaType type) {
+        switch (type) {
+            case staph:
+                return STAPH;
+            case strep:
+                return STREP;
+            case pneumonia:
+                return PNEUMONIA;
+            default:
+                return STAPH;
+        }
+    }
+
+    /**
+     * Get the bitmap holding all of the sprites.
+     * @return
+     */
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * Get the left edge of a sprite within the atlas.
+     * @param sprite
+     * @return
+     */
+    public int getLeft(int sprite) {
+        return left[sprite];
+    }
+
+    /**
+     * Get the top edge of a sprite within the atlas.
+     * @param sprite
+     * @return
+     */
+    public int getTop(int sprite) {
+        return top[sprite];
+    }
+
+    /**
+     * Get the width of a sprite.
+     * @param sprite
+     * @return
+     */
+    public int getWidth(int sprite) {
+        return width[sprite];
+    }
+
+    /**
+     * Get the height of a sprite.
+     * @param sprite
+     * @return
+     */
+    public int getHeight(int sprite) {
+        return height[sprite];
+    }
+}
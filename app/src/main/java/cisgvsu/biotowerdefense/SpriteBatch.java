@@ -0,0 +1,141 @@
+package cisgvsu.biotowerdefense;
+
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+/**
+ * Collects sprites from a {@link SpriteAtlas} into one vertex array and draws
+ * them with a single drawVertices call, instead of one drawBitmap per sprite.
+ */
+public class SpriteBatch {
+    /** Most sprites that fit in one draw call (indices are shorts). */
+    public static final int MAX_SPRITES = 8192;
+
+    /** Floats per sprite in the vertex and texture arrays (4 corners, x and y). */
+    private static final int FLOATS_PER_SPRITE = 8;
+
+    /** Indices per sprite (2 triangles). */
+    private static final int INDICES_PER_SPRITE = 6;
+
+    /** The atlas every sprite comes from. */
+    private final SpriteAtlas atlas;
+
+    /** Paint that textures the triangles with the atlas. */
+    private final Paint paint;
+
+    /** Screen positions of the corners of every queued sprite. */
+    private final float[] verts = new float[MAX_SPRITES * FLOATS_PER_SPRITE];
+
+    /** Atlas positions of the corners of every queued sprite. */
+    private final float[] texs = new float[MAX_SPRITES * FLOATS_PER_SPRITE];
+
+    /** Triangle indices, these never change so they're built once. */
+    private final short[] indices = new short[MAX_SPRITES * INDICES_PER_SPRITE];
+
+    /** Number of sprites queued since the last flush. */
+    private int count;
+
+    /** Canvas we're currently drawing to. */
+    private Canvas canvas;
+
+    /**
+     * Create a batch that draws sprites from the given atlas.
+     * @param atlas
+     */
+    public SpriteBatch(SpriteAtlas atlas) {
+        this.atlas = atlas;
+        this.paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        paint.setShader(new BitmapShader(atlas.getBitmap(), Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+
+        // Corners go top left, top right, bottom right, bottom left
+        for (int i = 0; i < MAX_SPRITES; i++) {
+            short corner = (short) (i * 4);
+            int j = i * INDICES_PER_SPRITE;
+            indices[j] = corner;
+            indices[j + 1] = (short) (corner + 1);
+            indices[j + 2] = (short) (corner + 2);
+            indices[j + 3] = corner;
+            indices[j + 4] = (short) (corner + 2);
+            indices[j + 5] = (short) (corner + 3);
+        }
+    }
+
+    /**
+     * Start queueing sprites for a frame.
+     * @param canvas The canvas to draw to when the batch is flushed.
+     */
+    public void begin(Canvas canvas) {
+        this.canvas = canvas;
+        this.count = 0;
+    }
+
+    /**
+     * Queue a sprite with its top left corner at (x, y), at its normal size.
+     * @param sprite Sprite index in the atlas.
+     * @param x
+     * @param y
+     */
+    public void add(int sprite, float x, float y) {
+        add(sprite, x, y, atlas.getWidth(sprite), atlas.getHeight(sprite));
+    }
+
+    /**
+     * Queue a sprite with its top left corner at (x, y), stretched to the given size.
+     * @param sprite Sprite index in the atlas.
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     */
+    public void add(int sprite, float x, float y, float w, float h) {
+        if (count == MAX_SPRITES) {
+            flush();
+        }
+
+        float u0 = atlas.getLeft(sprite);
+        float v0 = atlas.getTop(sprite);
+        float u1 = u0 + atlas.getWidth(sprite);
+        float v1 = v0 + atlas.getHeight(sprite);
+
+        int i = count * FLOATS_PER_SPRITE;
+        verts[i] = x;
+        verts[i + 1] = y;
+        verts[i + 2] = x + w;
+        verts[i + 3] = y;
+        verts[i + 4] = x + w;
+        verts[i + 5] = y + h;
+        verts[i + 6] = x;
+        verts[i + 7] = y + h;
+
+        texs[i] = u0;
+        texs[i + 1] = v0;
+        texs[i + 2] = u1;
+        texs[i + 3] = v0;
+        texs[i + 4] = u1;
+        texs[i + 5] = v1;
+        texs[i + 6] = u0;
+        texs[i + 7] = v1;
+        count++;
+    }
+
+    /**
+     * Draw everything that has been queued and empty the batch.
+     */
+    public void flush() {
+        if (count > 0 && canvas != null) {
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLES, count * FLOATS_PER_SPRITE,
+                    verts, 0, texs, 0, null, 0, indices, 0, count * INDICES_PER_SPRITE, paint);
+        }
+        count = 0;
+    }
+
+    /**
+     * Draw anything left over and stop drawing to the canvas.
+     */
+    public void end() {
+        flush();
+        canvas = null;
+    }
+}
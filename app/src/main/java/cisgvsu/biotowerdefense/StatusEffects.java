@@ -0,0 +1,434 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+
+/**
+ * Status effects on bacteria, like being slowed by a bacteriostatic
+ * antibiotic, taking damage over time, or hiding behind a biofilm shield.
+ *
+ * Effects are packed into plain arrays, one entry per effect, and keyed by the
+ * bacteria's index in the {@link BacteriaStore}. Each bacteria's effects are
+ * also linked together (like the buckets in {@link SpatialHash}) so looking
+ * one up or following a bacteria that moves in the store is cheap.
+ * {@link #tick} goes over every effect in one pass, and an effect that runs
+ * out is swap-removed, so nothing is allocated once the arrays are big enough.
+ * With a {@link WorkerPool}, the effects are aged in chunks across threads
+ * first (each chunk only touches its own effects), then swept on one thread.
+ *
+ * Stacking rules: a slow or a shield doesn't stack, the strongest one wins
+ * and a new one tops up how long it lasts. Damage over time stacks up to
+ * {@link #MAX_DOT_STACKS}, after which a new one replaces the one closest to
+ * running out.
+ */
+public class StatusEffects implements BacteriaStore.Listener {
+    /** Kinds of effect. */
+    public static final int SLOW = 0;
+    public static final int DAMAGE_OVER_TIME = 1;
+    public static final int SHIELD = 2;
+
+    /** Most damage over time effects one bacteria can have at once. */
+    public static final int MAX_DOT_STACKS = 3;
+
+    /** Time between hits of damage over time, in milliseconds. */
+    private static final long DOT_INTERVAL = 1000;
+
+    /** Per effect: who it's on, what kind it is and how strong it is. Strength
+     *  is percent slower for a slow, damage per hit for damage over time, and
+     *  damage it can soak up for a shield. */
+    private int[] entity = new int[16];
+    private int[] kind = new int[16];
+    private int[] strength = new int[16];
+
+    /** Per effect: milliseconds until it runs out, and until it next hits. */
+    private long[] remaining = new long[16];
+    private long[] pulse = new long[16];
+
+    /** Per effect: times damage over time hit during this tick. */
+    private int[] hits = new int[16];
+
+    /** Per effect: next and previous effect on the same bacteria, -1 at the ends. */
+    private int[] next = new int[16];
+    private int[] prev = new int[16];
+
+    /** Number of effects. */
+    private int count;
+
+    /** Per bacteria: first effect on it (-1 if none), and how much it's slowed. */
+    private int[] first = new int[0];
+    private volatile int[] slow = new int[0];
+
+    /** Fewest effects worth handing to another thread. */
+    private static final int GRAIN = 4096;
+
+    /** How long the current tick is, in milliseconds. */
+    private long tickMillis;
+
+    /** Ages the effects in one chunk of the arrays. */
+    private final WorkerPool.RangeTask age = new WorkerPool.RangeTask() {
+        @Override
+        public void run(int chunk, int from, int to) {
+            age(from, to, tickMillis);
+        }
+    };
+
+    /** Bacteria taking damage over time this tick, and how much. */
+    private Bacteria[] damaged = new Bacteria[16];
+    private int[] damage = new int[16];
+    private int numDamaged;
+
+    /**
+     * Put an effect on a bacteria, following the stacking rules.
+     * @param e Store index of the bacteria.
+     * @param kind What kind of effect.
+     * @param strength How strong it is.
+     * @param duration How long it lasts, in milliseconds.
+     */
+    public void apply(int e, int kind, int strength, long duration) {
+        if (e < 0 || strength <= 0 || duration <= 0) {
+            return;
+        }
+        ensureEntityCapacity(e + 1);
+
+        int stacks = 0;
+        int weakest = -1;
+        for (int i = first[e]; i >= 0; i = next[i]) {
+            if (this.kind[i] != kind) {
+                continue;
+            }
+            if (kind != DAMAGE_OVER_TIME) {
+                // Doesn't stack, keep the strongest and the longest
+                this.strength[i] = Math.max(this.strength[i], strength);
+                remaining[i] = Math.max(remaining[i], duration);
+                updateSlow(e);
+                return;
+            }
+            stacks++;
+            if (weakest < 0 || remaining[i] < remaining[weakest]) {
+                weakest = i;
+            }
+        }
+        if (stacks >= MAX_DOT_STACKS) {
+            this.strength[weakest] = strength;
+            remaining[weakest] = duration;
+            pulse[weakest] = DOT_INTERVAL;
+            return;
+        }
+
+        int i = add(e, kind, strength, duration);
+        if (kind == DAMAGE_OVER_TIME) {
+            pulse[i] = DOT_INTERVAL;
+        }
+        updateSlow(e);
+    }
+
+    /**
+     * Check if a bacteria has an effect of some kind on it.
+     * @param e Store index of the bacteria.
+     * @param kind
+     * @return
+     */
+    public boolean has(int e, int kind) {
+        if (e < 0 || e >= first.length) {
+            return false;
+        }
+        for (int i = first[e]; i >= 0; i = next[i]) {
+            if (this.kind[i] == kind) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get how much a bacteria is slowed. Safe to call from the drawing thread.
+     * @param e Store index of the bacteria.
+     * @return Percent slower than normal, 0 if it isn't slowed.
+     */
+    public int getSlow(int e) {
+        int[] array = slow;
+        return e >= 0 && e < array.length ? array[e] : 0;
+    }
+
+    /**
+     * Let a bacteria's shield soak up damage. A shield that's used up is removed.
+     * @param e Store index of the bacteria.
+     * @param damage Damage coming in.
+     * @return Damage left over after the shield.
+     */
+    public int absorb(int e, int damage) {
+        if (e < 0 || e >= first.length) {
+            return damage;
+        }
+        for (int i = first[e]; i >= 0; i = next[i]) {
+            if (kind[i] == SHIELD) {
+                int soaked = Math.min(strength[i], damage);
+                strength[i] -= soaked;
+                if (strength[i] == 0) {
+                    remove(i);
+                }
+                return damage - soaked;
+            }
+        }
+        return damage;
+    }
+
+    /**
+     * Move every effect forward in time in one pass over the arrays, removing
+     * any that run out. Damage over time that hits this tick is saved up, call
+     * {@link #getDamaged(int)} and {@link #getDamage(int)} afterwards to apply it.
+     * @param millis How much time has passed.
+     * @param store The store the effects are keyed by.
+     * @return How many bacteria take damage this tick.
+     */
+    public int tick(long millis, BacteriaStore store) {
+        return tick(millis, store, null);
+    }
+
+    /**
+     * Move every effect forward in time, aging them across a pool of threads
+     * and then removing any that ran out on this one.
+     * @param millis How much time has passed.
+     * @param store The store the effects are keyed by.
+     * @param pool Threads to use, or null to do it all on this one.
+     * @return How many bacteria take damage this tick.
+     */
+    public int tick(long millis, BacteriaStore store, WorkerPool pool) {
+        Arrays.fill(damaged, 0, numDamaged, null);
+        numDamaged = 0;
+
+        if (pool != null) {
+            tickMillis = millis;
+            pool.forRange(count, GRAIN, age);
+        } else {
+            age(0, count, millis);
+        }
+
+        // Sweep up in order, so damage comes out the same on any number of threads
+        int i = 0;
+        while (i < count) {
+            if (hits[i] > 0) {
+                addDamage(store.get(entity[i]), hits[i] * strength[i]);
+            }
+            if (remaining[i] <= 0) {
+                // The last effect moves into this spot, so look at i again
+                int e = entity[i];
+                boolean wasSlow = kind[i] == SLOW;
+                remove(i);
+                if (wasSlow) {
+                    updateSlow(e);
+                }
+            } else {
+                i++;
+            }
+        }
+        return numDamaged;
+    }
+
+    /**
+     * Age the effects between two indices, working out how many times each
+     * damage over time hits. Only touches those effects, so chunks can run
+     * at the same time.
+     */
+    private void age(int from, int to, long millis) {
+        for (int i = from; i < to; i++) {
+            hits[i] = 0;
+            if (kind[i] == DAMAGE_OVER_TIME) {
+                // Hit for every interval that passed, up until it runs out
+                long elapsed = Math.min(millis, remaining[i]);
+                pulse[i] -= elapsed;
+                while (pulse[i] <= 0) {
+                    pulse[i] += DOT_INTERVAL;
+                    hits[i]++;
+                }
+            }
+            remaining[i] -= millis;
+        }
+    }
+
+    /**
+     * Get a bacteria taking damage over time this tick.
+     * @param i
+     * @return
+     */
+    public Bacteria getDamaged(int i) {
+        return damaged[i];
+    }
+
+    /**
+     * Get the damage a bacteria takes this tick.
+     * @param i
+     * @return
+     */
+    public int getDamage(int i) {
+        return damage[i];
+    }
+
+    /**
+     * Get how many effects there are on all bacteria.
+     * @return
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * The bacteria's effects go with it.
+     * @param index
+     */
+    @Override
+    public void removed(int index) {
+        if (index >= first.length) {
+            return;
+        }
+        while (first[index] >= 0) {
+            remove(first[index]);
+        }
+        slow[index] = 0;
+    }
+
+    /**
+     * Re-key the effects on a bacteria that moved in the store.
+     * @param from
+     * @param to
+     */
+    @Override
+    public void moved(int from, int to) {
+        ensureEntityCapacity(Math.max(from, to) + 1);
+        first[to] = first[from];
+        slow[to] = slow[from];
+        first[from] = -1;
+        slow[from] = 0;
+        for (int i = first[to]; i >= 0; i = next[i]) {
+            entity[i] = to;
+        }
+    }
+
+    /**
+     * Forget every effect.
+     */
+    @Override
+    public void cleared() {
+        Arrays.fill(first, -1);
+        Arrays.fill(slow, 0);
+        Arrays.fill(damaged, 0, numDamaged, null);
+        numDamaged = 0;
+        count = 0;
+    }
+
+    /**
+     * Add an effect to the end of the arrays and link it in at the front of
+     * its bacteria's effects.
+     */
+    private int add(int e, int kind, int strength, long duration) {
+        if (count == entity.length) {
+            int capacity = count * 2;
+            entity = Arrays.copyOf(entity, capacity);
+            this.kind = Arrays.copyOf(this.kind, capacity);
+            this.strength = Arrays.copyOf(this.strength, capacity);
+            remaining = Arrays.copyOf(remaining, capacity);
+            pulse = Arrays.copyOf(pulse, capacity);
+            hits = Arrays.copyOf(hits, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        int i = count++;
+        entity[i] = e;
+        this.kind[i] = kind;
+        this.strength[i] = strength;
+        remaining[i] = duration;
+        pulse[i] = 0;
+        hits[i] = 0;
+        prev[i] = -1;
+        next[i] = first[e];
+        if (first[e] >= 0) {
+            prev[first[e]] = i;
+        }
+        first[e] = i;
+        return i;
+    }
+
+    /**
+     * Remove an effect by unlinking it and moving the last effect into its spot.
+     */
+    private void remove(int i) {
+        unlink(i);
+        int last = --count;
+        if (i == last) {
+            return;
+        }
+        entity[i] = entity[last];
+        kind[i] = kind[last];
+        strength[i] = strength[last];
+        remaining[i] = remaining[last];
+        pulse[i] = pulse[last];
+        hits[i] = hits[last];
+        next[i] = next[last];
+        prev[i] = prev[last];
+
+        // Point the moved effect's neighbours at its new spot
+        if (prev[i] >= 0) {
+            next[prev[i]] = i;
+        } else {
+            first[entity[i]] = i;
+        }
+        if (next[i] >= 0) {
+            prev[next[i]] = i;
+        }
+    }
+
+    /**
+     * Take an effect out of its bacteria's list.
+     */
+    private void unlink(int i) {
+        if (prev[i] >= 0) {
+            next[prev[i]] = next[i];
+        } else {
+            first[entity[i]] = next[i];
+        }
+        if (next[i] >= 0) {
+            prev[next[i]] = prev[i];
+        }
+    }
+
+    /**
+     * Work out how much a bacteria is slowed from the slows on it.
+     */
+    private void updateSlow(int e) {
+        int most = 0;
+        for (int i = first[e]; i >= 0; i = next[i]) {
+            if (kind[i] == SLOW) {
+                most = Math.max(most, strength[i]);
+            }
+        }
+        slow[e] = Math.min(most, 100);
+    }
+
+    /**
+     * Save up damage for a bacteria this tick.
+     */
+    private void addDamage(Bacteria bacteria, int amount) {
+        if (bacteria == null) {
+            return;
+        }
+        if (numDamaged == damaged.length) {
+            damaged = Arrays.copyOf(damaged, numDamaged * 2);
+            damage = Arrays.copyOf(damage, numDamaged * 2);
+        }
+        damaged[numDamaged] = bacteria;
+        damage[numDamaged] = amount;
+        numDamaged++;
+    }
+
+    /**
+     * Grow the per-bacteria arrays to hold at least n bacteria.
+     */
+    private void ensureEntityCapacity(int n) {
+        if (n > first.length) {
+            int capacity = Math.max(n, first.length * 2);
+            int old = first.length;
+            first = Arrays.copyOf(first, capacity);
+            Arrays.fill(first, old, capacity, -1);
+            slow = Arrays.copyOf(slow, capacity);
+        }
+    }
+}
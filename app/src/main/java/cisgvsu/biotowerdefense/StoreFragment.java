@@ -12,8 +12,6 @@ import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.GridView;
 
-import java.util.ArrayList;
-
 /**
  * Control the contents of the store tab.
  */
@@ -23,7 +21,8 @@ public class StoreFragment extends android.support.v4.app.Fragment {
     private int money = 0;
     final static String EXTRA_TOWER_TO_PLACE = "cisgvsu.biotowerdefense.EXTRA_TOWER_TO_PLACE";
     final static String EXTRA_TOWER_POSITION = "cisgvsu.biotowerdefense.EXTRA_TOWER_POSITION";
-    private ArrayList<String> store;
+    /** What's for sale, in the order it's shown. */
+    private final AntibioticType[] store = AntibioticType.values();
 
     /**
      * Set up the handler for when an item in the inventory is clicked on.
@@ -78,12 +77,12 @@ public class StoreFragment extends android.support.v4.app.Fragment {
         View view = inflater.inflate(R.layout.store_fragment, container, false);
 
         // Set up adapter
-        this.store = new ArrayList<>();
-        store.add("Penicillin\nCost: " + AntibioticType.getCost(AntibioticType.penicillin));
-        store.add("Vancomycin\nCost: " + AntibioticType.getCost(AntibioticType.vancomycin));
-        store.add("Linezolid\nCost: " + AntibioticType.getCost(AntibioticType.linezolid));
+        String[] labels = new String[store.length];
+        for (int i = 0; i < store.length; i++) {
+            labels[i] = AntibioticType.toString(store[i]) + "\nCost: " + AntibioticType.getCost(store[i]);
+        }
         ArrayAdapter<String> adapter = new ArrayAdapter<String>(getActivity().getApplicationContext(),
-                android.R.layout.simple_list_item_1, store);
+                android.R.layout.simple_list_item_1, labels);
 
         // Attach to GridView
         GridView gridView = (GridView) view.findViewById(R.id.storeGridView);
@@ -96,17 +95,15 @@ public class StoreFragment extends android.support.v4.app.Fragment {
     }
 
     public void handlePurchase(int index) {
-        // Parse values
-        String str = this.store.get(index);
-        //String tower = str.substring(0, str.indexOf("\n"));
-        int cost = Integer.parseInt(str.substring(str.indexOf(":")+2));
+        AntibioticType type = this.store[index];
+        int cost = AntibioticType.getCost(type);
 
         Log.d("tag", "Money: " + this.money + " Cost: " + cost);
 
         // See if we can afford it, place tower if we can
         if (cost <= this.money) {
             Intent intent = new Intent(getActivity(), MainActivity.class);
-            intent.putExtra(StoreFragment.EXTRA_TOWER_TO_PLACE, str);
+            intent.putExtra(StoreFragment.EXTRA_TOWER_TO_PLACE, type.ordinal());
             intent.putExtra(StoreFragment.EXTRA_TOWER_POSITION, this.towerPosition);
             startActivity(intent);
         } else {
@@ -10,8 +10,6 @@ import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
 
-import java.util.ArrayList;
-
 /**
  * Handle navigation between store and inventory tabs, mostly just passing information
  * to them that we received from the main game activity about where to put a tower.
@@ -34,7 +32,7 @@ public class StoreInventoryNavigationActivity extends AppCompatActivity {
         int position = intent.getIntExtra(MainActivity.EXTRA_TOWER_POSITION, 0);
         int money = game.getMoney();
         toolbar.setSubtitle("Money: " + money);
-        ArrayList<String> strInventory = game.getInventoryAsStrings();
+        Inventory inventory = game.getInventory();
 
         TabLayout tabLayout = (TabLayout) findViewById(R.id.tab_layout);
         tabLayout.addTab(tabLayout.newTab().setText("Store"));
@@ -49,7 +47,7 @@ public class StoreInventoryNavigationActivity extends AppCompatActivity {
         Bundle bundle = new Bundle();
         bundle.putInt(MainActivity.EXTRA_TOWER_POSITION, position);
         bundle.putInt(MainActivity.EXTRA_MONEY, money);
-        bundle.putStringArrayList(MainActivity.EXTRA_INVENTORY, strInventory);
+        bundle.putParcelable(MainActivity.EXTRA_INVENTORY, new InventoryParcel(inventory));
         adapter.setBundle(bundle);
 
         viewPager.setAdapter(adapter);
@@ -0,0 +1,60 @@
+package cisgvsu.biotowerdefense;
+
+import java.lang.ref.WeakReference;
+import java.util.Observable;
+import java.util.Observer;
+
+/**
+ * An observer signed up to an {@link Observable} through a weak reference.
+ * The game lives as long as the app does, so holding screens strongly
+ * would keep every one that ever watched it in memory. Cancel it when the
+ * observer is done, like in onDestroy. If that's missed, it cancels itself
+ * the first time it's notified after the observer is gone.
+ */
+public class Subscription implements Observer {
+    private final Observable observable;
+    private final WeakReference<Observer> observer;
+
+    /**
+     * Sign an observer up to an observable.
+     * @param observable
+     * @param observer
+     */
+    public Subscription(Observable observable, Observer observer) {
+        this.observable = observable;
+        this.observer = new WeakReference<>(observer);
+        observable.addObserver(this);
+    }
+
+    /**
+     * Pass the update on, if the observer is still around.
+     * @param o
+     * @param arg
+     */
+    @Override
+    public void update(Observable o, Object arg) {
+        Observer target = observer.get();
+        if (target == null) {
+            cancel();
+        } else {
+            target.update(o, arg);
+        }
+    }
+
+    /**
+     * Stop getting updates.
+     */
+    public void cancel() {
+        observable.deleteObserver(this);
+        observer.clear();
+    }
+
+    /**
+     * Check if this still gets updates, meaning it hasn't been cancelled
+     * and the observer hasn't been thrown away.
+     * @return
+     */
+    public boolean isActive() {
+        return observer.get() != null;
+    }
+}
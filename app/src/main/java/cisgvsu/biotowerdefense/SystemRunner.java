@@ -0,0 +1,128 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+
+/**
+ * Runs the game's systems one after another in the order they were added,
+ * and keeps track of how long each one takes so they can be measured.
+ */
+public class SystemRunner {
+    /** The systems, in the order they run. */
+    private GameSystem[] systems = new GameSystem[0];
+
+    /** How long each system took last tick, and over every tick, in nanoseconds. */
+    private long[] lastNanos = new long[0];
+    private long[] totalNanos = new long[0];
+
+    /** How many ticks have run. */
+    private long ticks;
+
+    /** How long each tick took in all, while ticks are being recorded. */
+    private long[] tickNanos;
+    private int recorded;
+
+    /**
+     * Add a system to run after the ones already added.
+     * @param system
+     */
+    public void add(GameSystem system) {
+        int n = systems.length;
+        systems = Arrays.copyOf(systems, n + 1);
+        lastNanos = Arrays.copyOf(lastNanos, n + 1);
+        totalNanos = Arrays.copyOf(totalNanos, n + 1);
+        systems[n] = system;
+    }
+
+    /**
+     * Run every system once, in order.
+     * @param millis How much game time the tick covers.
+     */
+    public void update(long millis) {
+        long tick = 0;
+        for (int i = 0; i < systems.length; i++) {
+            long start = System.nanoTime();
+            systems[i].update(millis);
+            long took = System.nanoTime() - start;
+            lastNanos[i] = took;
+            totalNanos[i] += took;
+            tick += took;
+        }
+        ticks++;
+        if (tickNanos != null) {
+            if (recorded == tickNanos.length) {
+                tickNanos = Arrays.copyOf(tickNanos, recorded * 2);
+            }
+            tickNanos[recorded++] = tick;
+        }
+    }
+
+    /**
+     * Start keeping how long every tick takes from now on, like for a
+     * benchmark that wants percentiles. Anything kept so far is forgotten.
+     * @param expected About how many ticks there will be, to size the log.
+     */
+    public void recordTicks(int expected) {
+        tickNanos = new long[Math.max(16, expected)];
+        recorded = 0;
+    }
+
+    /**
+     * Get how long each tick took since {@link #recordTicks} was called.
+     * @return Nanoseconds per tick, in order. Empty if ticks aren't being recorded.
+     */
+    public long[] getTickNanos() {
+        return tickNanos == null ? new long[0] : Arrays.copyOf(tickNanos, recorded);
+    }
+
+    /**
+     * Get the number of systems.
+     * @return
+     */
+    public int size() {
+        return systems.length;
+    }
+
+    /**
+     * Get the name of a system.
+     * @param i Where the system is in the running order.
+     * @return
+     */
+    public String getName(int i) {
+        return systems[i].getName();
+    }
+
+    /**
+     * Get how long a system took last tick.
+     * @param i Where the system is in the running order.
+     * @return Time in nanoseconds.
+     */
+    public long getLastNanos(int i) {
+        return lastNanos[i];
+    }
+
+    /**
+     * Get how long a system has taken over every tick so far.
+     * @param i Where the system is in the running order.
+     * @return Time in nanoseconds.
+     */
+    public long getTotalNanos(int i) {
+        return totalNanos[i];
+    }
+
+    /**
+     * Get how many ticks have run.
+     * @return
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Forget how long everything has taken so far.
+     */
+    public void resetTimings() {
+        Arrays.fill(lastNanos, 0);
+        Arrays.fill(totalNanos, 0);
+        ticks = 0;
+    }
+}
@@ -0,0 +1,217 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.Arrays;
+
+/**
+ * The bacteria lined up for one tower, in path order, kept in a ring
+ * buffer. Taking from the front and adding to either end don't allocate,
+ * and whole runs of bacteria move from one queue to another with
+ * {@link #moveTo} as a couple of array copies instead of one at a time.
+ *
+ * Only the simulation thread touches the queues, so nothing here is
+ * synchronized.
+ */
+public class TargetQueue {
+    /** The bacteria, starting at head and wrapping around. Length is a power of 2. */
+    private Bacteria[] items;
+    private int head;
+    private int size;
+
+    /**
+     * Create an empty queue.
+     */
+    public TargetQueue() {
+        this(16);
+    }
+
+    /**
+     * Create an empty queue with room for some bacteria to start with.
+     * @param capacity
+     */
+    public TargetQueue(int capacity) {
+        items = new Bacteria[Integer.highestOneBit(Math.max(2, capacity - 1)) << 1];
+    }
+
+    /**
+     * Get how many bacteria are in the queue.
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the queue is empty.
+     * @return
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get a bacteria by where it is in line.
+     * @param i 0 for the front.
+     * @return
+     */
+    public Bacteria get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + size);
+        }
+        return items[(head + i) & (items.length - 1)];
+    }
+
+    /**
+     * Get the bacteria at the front without taking it out.
+     * @return Null if the queue is empty.
+     */
+    public Bacteria peek() {
+        return size == 0 ? null : items[head];
+    }
+
+    /**
+     * Get the bacteria at the back without taking it out.
+     * @return Null if the queue is empty.
+     */
+    public Bacteria peekLast() {
+        return size == 0 ? null : items[(head + size - 1) & (items.length - 1)];
+    }
+
+    /**
+     * Take the bacteria at the front out of the queue.
+     * @return Null if the queue is empty.
+     */
+    public Bacteria poll() {
+        if (size == 0) {
+            return null;
+        }
+        Bacteria b = items[head];
+        items[head] = null;
+        head = (head + 1) & (items.length - 1);
+        size--;
+        return b;
+    }
+
+    /**
+     * Add a bacteria to the back of the queue.
+     * @param b
+     */
+    public void add(Bacteria b) {
+        ensureCapacity(size + 1);
+        items[(head + size) & (items.length - 1)] = b;
+        size++;
+    }
+
+    /**
+     * Add a bacteria to the front of the queue.
+     * @param b
+     */
+    public void addFirst(Bacteria b) {
+        ensureCapacity(size + 1);
+        head = (head - 1) & (items.length - 1);
+        items[head] = b;
+        size++;
+    }
+
+    /**
+     * Take a bacteria out of the queue wherever it is, keeping the rest in order.
+     * @param b
+     * @return True if it was in the queue.
+     */
+    public boolean remove(Bacteria b) {
+        int mask = items.length - 1;
+        for (int i = 0; i < size; i++) {
+            if (items[(head + i) & mask] == b) {
+                // Close the gap from whichever end is closer
+                if (i < size / 2) {
+                    for (int j = i; j > 0; j--) {
+                        items[(head + j) & mask] = items[(head + j - 1) & mask];
+                    }
+                    items[head] = null;
+                    head = (head + 1) & mask;
+                } else {
+                    for (int j = i; j < size - 1; j++) {
+                        items[(head + j) & mask] = items[(head + j + 1) & mask];
+                    }
+                    items[(head + size - 1) & mask] = null;
+                }
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move bacteria from the front of this queue onto the back of another,
+     * keeping them in order.
+     * @param other The queue to move them to.
+     * @param n How many to move.
+     * @return How many were moved, which is less than n if this queue ran out.
+     */
+    public int moveTo(TargetQueue other, int n) {
+        n = Math.min(n, size);
+        other.ensureCapacity(other.size + n);
+        int moved = 0;
+        while (moved < n) {
+            // Copy the longest run that doesn't wrap around in either buffer
+            int to = (other.head + other.size) & (other.items.length - 1);
+            int run = Math.min(n - moved, Math.min(items.length - head, other.items.length - to));
+            System.arraycopy(items, head, other.items, to, run);
+            Arrays.fill(items, head, head + run, null);
+            head = (head + run) & (items.length - 1);
+            size -= run;
+            other.size += run;
+            moved += run;
+        }
+        return n;
+    }
+
+    /**
+     * Swap everything in this queue with everything in another one. Handy
+     * for building a new version of a queue and dropping it in.
+     * @param other
+     */
+    public void swap(TargetQueue other) {
+        Bacteria[] items = this.items;
+        int head = this.head;
+        int size = this.size;
+        this.items = other.items;
+        this.head = other.head;
+        this.size = other.size;
+        other.items = items;
+        other.head = head;
+        other.size = size;
+    }
+
+    /**
+     * Empty the queue.
+     */
+    public void clear() {
+        int mask = items.length - 1;
+        for (int i = 0; i < size; i++) {
+            items[(head + i) & mask] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Make sure there's room for some number of bacteria, doubling the
+     * buffer and straightening it out if there isn't.
+     */
+    private void ensureCapacity(int needed) {
+        if (needed <= items.length) {
+            return;
+        }
+        int capacity = items.length;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        Bacteria[] grown = new Bacteria[capacity];
+        int firstRun = Math.min(size, items.length - head);
+        System.arraycopy(items, head, grown, 0, firstRun);
+        System.arraycopy(items, 0, grown, firstRun, size - firstRun);
+        items = grown;
+        head = 0;
+    }
+}
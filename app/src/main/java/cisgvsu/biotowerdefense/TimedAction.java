@@ -0,0 +1,42 @@
+package cisgvsu.biotowerdefense;
+
+/**
+ * Something that happens at a set time in the game, like a tower being
+ * ready to fire again. Actions are scheduled on a {@link TimingWheel}, and
+ * link straight into the wheel's slots so scheduling one doesn't allocate.
+ * An action can only be scheduled once at a time.
+ */
+public abstract class TimedAction {
+    /** Wheel tick this action is due on. */
+    long deadline;
+
+    /** Slot of the wheel this action is in, -1 if it isn't scheduled. */
+    int slot = -1;
+
+    /** Neighbours in the same slot. */
+    TimedAction next;
+    TimedAction prev;
+
+    /**
+     * Get whether this action is waiting on a wheel.
+     * @return True if it's scheduled.
+     */
+    public boolean isScheduled() {
+        return slot >= 0;
+    }
+
+    /**
+     * Get the wheel tick this action is due on.
+     * @return
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Do the action. It's already off the wheel by now, so it can schedule
+     * itself again to repeat.
+     * @param wheel The wheel it was scheduled on.
+     */
+    public abstract void run(TimingWheel wheel);
+}
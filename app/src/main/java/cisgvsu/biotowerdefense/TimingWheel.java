@@ -0,0 +1,192 @@
+package cisgvsu.biotowerdefense;
+
+/**
+ * Hierarchical timing wheel for everything in the game that happens on a
+ * timer. Time moves in whole ticks. The first level has one slot per tick
+ * for the next 64 ticks, and each level above it has slots 64 times as wide.
+ * An action goes in the lowest level that reaches its deadline, and gets
+ * moved down a level (cascaded) when the level below comes round to it.
+ *
+ * Scheduling and cancelling are O(1), since each slot is a doubly linked list
+ * through the actions themselves. Running a tick only touches the actions
+ * that are due, plus a cascade every 64 ticks.
+ */
+public class TimingWheel {
+    /** Slots per level is 2 to the power of this. */
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+
+    /** Number of levels. Four levels of 64 slots reach 16.7 million ticks. */
+    private static final int LEVELS = 4;
+
+    /** Furthest ahead the wheel can hold an action. Anything past this waits
+     *  in the top level and gets cascaded around again. */
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    /** First and last action in each slot, level by level. */
+    private final TimedAction[] heads = new TimedAction[LEVELS * SLOTS];
+    private final TimedAction[] tails = new TimedAction[LEVELS * SLOTS];
+
+    /** The current tick. */
+    private long now;
+
+    /** Number of actions scheduled. */
+    private int size;
+
+    /**
+     * Get the current tick.
+     * @return
+     */
+    public synchronized long getTime() {
+        return now;
+    }
+
+    /**
+     * Get how many actions are scheduled.
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Schedule an action to run after some number of ticks. If it was already
+     * scheduled, it's moved to the new time.
+     * @param action
+     * @param delay Ticks from now, at least 1.
+     */
+    public synchronized void schedule(TimedAction action, long delay) {
+        if (action.isScheduled()) {
+            unlink(action);
+        } else {
+            size++;
+        }
+        action.deadline = now + Math.max(1, delay);
+        insert(action);
+    }
+
+    /**
+     * Take an action off the wheel without running it.
+     * @param action
+     * @return True if it was scheduled.
+     */
+    public synchronized boolean cancel(TimedAction action) {
+        if (action == null || !action.isScheduled()) {
+            return false;
+        }
+        unlink(action);
+        size--;
+        return true;
+    }
+
+    /**
+     * Move time forward, running every action that comes due in order.
+     * Actions due on the same tick always run in the same order, so a run
+     * with the same schedule plays out the same way.
+     * @param ticks How many ticks to move forward.
+     * @return How many actions ran.
+     */
+    public synchronized int advance(long ticks) {
+        int ran = 0;
+        for (long i = 0; i < ticks; i++) {
+            now++;
+            cascade();
+
+            int slot = (int) (now & MASK);
+            TimedAction action;
+            while ((action = heads[slot]) != null) {
+                unlink(action);
+                size--;
+                action.run(this);
+                ran++;
+            }
+        }
+        return ran;
+    }
+
+    /**
+     * Take every action off the wheel and go back to tick 0.
+     */
+    public synchronized void clear() {
+        for (int slot = 0; slot < heads.length; slot++) {
+            TimedAction action = heads[slot];
+            while (action != null) {
+                TimedAction next = action.next;
+                action.next = null;
+                action.prev = null;
+                action.slot = -1;
+                action = next;
+            }
+            heads[slot] = null;
+            tails[slot] = null;
+        }
+        size = 0;
+        now = 0;
+    }
+
+    /**
+     * When a level comes back round to slot 0, move the actions in the next
+     * level's current slot down to where they belong now.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            if (((now >>> (shift - SLOT_BITS)) & MASK) != 0) {
+                return;
+            }
+            int slot = level * SLOTS + (int) ((now >>> shift) & MASK);
+            TimedAction action = heads[slot];
+            heads[slot] = null;
+            tails[slot] = null;
+            while (action != null) {
+                TimedAction next = action.next;
+                insert(action);
+                action = next;
+            }
+        }
+    }
+
+    /**
+     * Put an action at the end of the slot for its deadline.
+     */
+    private void insert(TimedAction action) {
+        long when = Math.min(action.deadline, now + SPAN - 1);
+        long diff = when - now;
+        int level = 0;
+        while (level < LEVELS - 1 && diff >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = level * SLOTS + (int) ((when >>> (SLOT_BITS * level)) & MASK);
+
+        action.slot = slot;
+        action.next = null;
+        action.prev = tails[slot];
+        if (tails[slot] != null) {
+            tails[slot].next = action;
+        } else {
+            heads[slot] = action;
+        }
+        tails[slot] = action;
+    }
+
+    /**
+     * Take an action out of its slot.
+     */
+    private void unlink(TimedAction action) {
+        int slot = action.slot;
+        if (action.prev != null) {
+            action.prev.next = action.next;
+        } else {
+            heads[slot] = action.next;
+        }
+        if (action.next != null) {
+            action.next.prev = action.prev;
+        } else {
+            tails[slot] = action.prev;
+        }
+        action.next = null;
+        action.prev = null;
+        action.slot = -1;
+    }
+}
@@ -0,0 +1,215 @@
+package cisgvsu.biotowerdefense;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * The stats for every antibiotic or bacteria type, read once from a CSV
+ * file bundled with the app. The first line names the columns, and each
+ * line after that is one type, starting with its name. Rows are lined up
+ * with the enum's ordinals, so each column comes out as an array that can
+ * be indexed straight by ordinal.
+ *
+ * Blank lines and lines starting with # are skipped. Values can't have
+ * commas in them.
+ */
+public class TypeTable {
+    /** Column index of each column name. */
+    private final HashMap<String, Integer> columns = new HashMap<>();
+
+    /** Ordinal of each type name, lower case. */
+    private final HashMap<String, Integer> names = new HashMap<>();
+
+    /** Each type's values, by ordinal and then column. */
+    private final String[][] rows;
+
+    /**
+     * Read a table from a CSV file next to this class.
+     * @param file File name, like "antibiotics.csv".
+     * @param types The enum's values, to line the rows up with.
+     * @return
+     */
+    public static TypeTable load(String file, Enum<?>[] types) {
+        InputStream in = TypeTable.class.getResourceAsStream(file);
+        if (in == null) {
+            throw new IllegalStateException("Missing " + file);
+        }
+        try {
+            try {
+                return new TypeTable(in, types);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read " + file, e);
+        }
+    }
+
+    /**
+     * Read a table. Every type has to have exactly one row, and every row
+     * has to be a type: a new type needs its enum constant too.
+     * @param in
+     * @param types The enum's values, to line the rows up with.
+     * @throws IOException
+     * @throws IllegalStateException If a row doesn't match the types.
+     */
+    public TypeTable(InputStream in, Enum<?>[] types) throws IOException {
+        for (Enum<?> type : types) {
+            names.put(type.name().toLowerCase(Locale.US), type.ordinal());
+        }
+        rows = new String[types.length][];
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        String[] header = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] values = split(line);
+            if (header == null) {
+                header = values;
+                for (int i = 0; i < header.length; i++) {
+                    columns.put(header[i], i);
+                }
+                continue;
+            }
+            if (values.length != header.length) {
+                throw new IllegalStateException("Expected " + header.length + " values: " + line);
+            }
+            Integer ordinal = names.get(values[0].toLowerCase(Locale.US));
+            if (ordinal == null) {
+                throw new IllegalStateException("No type named " + values[0] + ", add it to the enum: " + line);
+            }
+            if (rows[ordinal] != null) {
+                throw new IllegalStateException("Two rows for " + values[0]);
+            }
+            rows[ordinal] = values;
+        }
+
+        for (Enum<?> type : types) {
+            if (rows[type.ordinal()] == null) {
+                throw new IllegalStateException("No row for " + type.name());
+            }
+        }
+    }
+
+    /**
+     * Get the ordinal of a type from its name, ignoring case.
+     * @param name
+     * @return -1 if there's no type with that name.
+     */
+    public int indexOf(String name) {
+        Integer ordinal = names.get(name.toLowerCase(Locale.US));
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Get a column as text.
+     * @param column
+     * @return Each type's value, by ordinal.
+     */
+    public String[] strings(String column) {
+        int c = column(column);
+        String[] out = new String[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            out[i] = rows[i][c];
+        }
+        return out;
+    }
+
+    /**
+     * Get a column of whole numbers.
+     * @param column
+     * @return Each type's value, by ordinal.
+     */
+    public int[] ints(String column) {
+        int c = column(column);
+        int[] out = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            out[i] = Integer.parseInt(rows[i][c]);
+        }
+        return out;
+    }
+
+    /**
+     * Get a column of whole numbers that can be big, like times.
+     * @param column
+     * @return Each type's value, by ordinal.
+     */
+    public long[] longs(String column) {
+        int c = column(column);
+        long[] out = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            out[i] = Long.parseLong(rows[i][c]);
+        }
+        return out;
+    }
+
+    /**
+     * Get a column of decimal numbers.
+     * @param column
+     * @return Each type's value, by ordinal.
+     */
+    public double[] doubles(String column) {
+        int c = column(column);
+        double[] out = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            out[i] = Double.parseDouble(rows[i][c]);
+        }
+        return out;
+    }
+
+    /**
+     * Get a column of resource names as resource IDs, by looking them up
+     * in one of the R classes, like R.drawable.
+     * @param column
+     * @param resources The R class to look in.
+     * @return Each type's ID, by ordinal.
+     * @throws IllegalStateException If a name isn't in the R class.
+     */
+    public int[] resources(String column, Class<?> resources) {
+        String[] names = strings(column);
+        int[] out = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            try {
+                out[i] = resources.getField(names[i]).getInt(null);
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException("No " + resources.getSimpleName() + " resource named "
+                        + names[i] + " in column " + column);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Couldn't read " + names[i], e);
+            }
+        }
+        return out;
+    }
+
+    private int column(String name) {
+        Integer c = columns.get(name);
+        if (c == null) {
+            throw new IllegalStateException("No column " + name);
+        }
+        return c;
+    }
+
+    /**
+     * Split a line on commas and trim each value.
+     */
+    private static String[] split(String line) {
+        ArrayList<String> values = new ArrayList<>();
+        int start = 0;
+        int comma;
+        while ((comma = line.indexOf(',', start)) >= 0) {
+            values.add(line.substring(start, comma).trim());
+            start = comma + 1;
+        }
+        values.add(line.substring(start).trim());
+        return values.toArray(new String[values.size()]);
+    }
+}
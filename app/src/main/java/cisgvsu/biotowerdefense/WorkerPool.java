@@ -0,0 +1,223 @@
+package cisgvsu.biotowerdefense;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A few worker threads for splitting one simulation phase across cores.
+ * {@link #forRange} cuts a range of indices into chunks, the workers and the
+ * calling thread take chunks until there are none left, and the call returns
+ * once every chunk is done.
+ *
+ * Chunk numbers go up with the indices, so anything a task writes into
+ * per-chunk buffers can be merged back in chunk order and come out the same
+ * as running the whole range on one thread, however many threads there are.
+ *
+ * The pool runs one range at a time. If several threads call forRange at
+ * once, like two games on the shared pool, each waits for the one before it
+ * to finish. A task can't call forRange on its own pool.
+ */
+public class WorkerPool {
+    /**
+     * Work on one chunk of a range.
+     */
+    public interface RangeTask {
+        /**
+         * Run the task over part of the range.
+         * @param chunk Which chunk this is, counting up from 0.
+         * @param from First index, inclusive.
+         * @param to Last index, exclusive.
+         */
+        void run(int chunk, int from, int to);
+    }
+
+    /** Most chunks a range is ever cut into, so callers can size their buffers. */
+    public static final int MAX_CHUNKS = 64;
+
+    /** Chunks per thread, so a slow chunk doesn't hold everyone up. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** One pool for every game to share, sized to the device. Games on it
+     *  take turns running their ranges. */
+    private static WorkerPool shared;
+
+    /**
+     * One call to {@link #forRange}.
+     */
+    private static class Job {
+        final RangeTask task;
+        final int n;
+        final int chunks;
+        final int chunkSize;
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final AtomicInteger remaining;
+        volatile Throwable failure;
+
+        Job(RangeTask task, int n, int chunks, int chunkSize) {
+            this.task = task;
+            this.n = n;
+            this.chunks = chunks;
+            this.chunkSize = chunkSize;
+            this.remaining = new AtomicInteger(chunks);
+        }
+    }
+
+    private final int threads;
+    private final Thread[] workers;
+    private final Object lock = new Object();
+
+    /** Held by the caller whose range is running, so ranges take turns. */
+    private final Object rangeLock = new Object();
+
+    /** The job being worked on, null between jobs. */
+    private Job current;
+    private boolean shutdown;
+
+    /**
+     * Get the pool every game shares, with one thread per core.
+     * @return
+     */
+    public static synchronized WorkerPool getShared() {
+        if (shared == null) {
+            shared = new WorkerPool(Runtime.getRuntime().availableProcessors());
+        }
+        return shared;
+    }
+
+    /**
+     * Create a pool.
+     * @param threads How many threads work on a range, counting the one
+     *                that calls {@link #forRange}. 1 runs everything inline.
+     */
+    public WorkerPool(int threads) {
+        this.threads = Math.max(1, threads);
+        this.workers = new Thread[this.threads - 1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    workerLoop();
+                }
+            }, "SimulationWorker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Get how many threads work on a range.
+     * @return
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Run a task over the indices 0 to n, split into chunks of at least
+     * grain indices, and wait for all of it to finish. Small ranges just run
+     * on the calling thread as one chunk. Waits first if another thread's
+     * range is running.
+     * @param n Number of indices.
+     * @param grain Fewest indices worth handing to another thread.
+     * @param task
+     * @return How many chunks the range was cut into.
+     */
+    public int forRange(int n, int grain, RangeTask task) {
+        if (n <= 0) {
+            return 0;
+        }
+        int chunks = Math.min(Math.min(MAX_CHUNKS, threads * CHUNKS_PER_THREAD),
+                (n + grain - 1) / Math.max(1, grain));
+        if (chunks <= 1 || workers.length == 0) {
+            task.run(0, 0, n);
+            return 1;
+        }
+        int chunkSize = (n + chunks - 1) / chunks;
+        chunks = (n + chunkSize - 1) / chunkSize;
+
+        Job job = new Job(task, n, chunks, chunkSize);
+        synchronized (rangeLock) {
+            synchronized (lock) {
+                current = job;
+                lock.notifyAll();
+            }
+
+            // Help out instead of just waiting
+            work(job);
+
+            synchronized (lock) {
+                boolean interrupted = false;
+                while (job.remaining.get() > 0) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                current = null;
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (job.failure != null) {
+            throw new RuntimeException("Simulation worker failed", job.failure);
+        }
+        return chunks;
+    }
+
+    /**
+     * Stop the worker threads. The pool runs everything inline after this.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Take chunks of a job until there are none left.
+     */
+    private void work(Job job) {
+        int chunk;
+        while ((chunk = job.nextChunk.getAndIncrement()) < job.chunks) {
+            int from = chunk * job.chunkSize;
+            int to = Math.min(job.n, from + job.chunkSize);
+            try {
+                job.task.run(chunk, from, to);
+            } catch (Throwable t) {
+                job.failure = t;
+            }
+            if (job.remaining.decrementAndGet() == 0) {
+                synchronized (lock) {
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for a job, help with it, and wait for the next one.
+     */
+    private void workerLoop() {
+        Job last = null;
+        while (true) {
+            Job job;
+            synchronized (lock) {
+                while (!shutdown && (current == null || current == last)) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (shutdown) {
+                    return;
+                }
+                job = current;
+            }
+            work(job);
+            last = job;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for bacteria dividing, plus a stress benchmark of growing up to the cap.
+ */
+public class BacteriaGrowthTest {
+    /**
+     * Time each growth tick here covers, in milliseconds. Much longer than a
+     * game's systems tick, so bacteria divide in fewer ticks.
+     */
+    private static final long TICK = 1000;
+
+    /** Most ticks to give growing up to the cap. */
+    private static final int MAX_TICKS = 1000;
+
+    /**
+     * Most time the p99 growth tick is allowed to take on the way to the cap,
+     * in milliseconds. About twice what it measures warm.
+     */
+    private static final long TICK_BUDGET = 12;
+
+    /**
+     * Run one growth tick over a single queue.
+     * @return How many were born.
+     */
+    private int tick(BacteriaGrowth growth, TargetQueue queue, BacteriaStore store, boolean colonies) {
+        growth.beginTick(TICK, store.remaining(), colonies);
+        growth.growQueue(queue);
+        return growth.endTick(store);
+    }
+
+    @Test
+    public void dividesAfterDoublingTime() throws Exception {
+        BacteriaStore store = new BacteriaStore(100);
+        TargetQueue queue = new TargetQueue();
+        Bacteria parent = new Bacteria(BacteriaType.staph, 1);
+        parent.setExempt(AntibioticType.penicillin);
+        parent.setX(50);
+        store.add(parent);
+        queue.add(parent);
+
+        BacteriaGrowth growth = new BacteriaGrowth();
+        long ticks = BacteriaType.getDoublingTime(BacteriaType.staph) / TICK;
+        for (int i = 0; i < ticks - 1; i++) {
+            assertEquals(0, tick(growth, queue, store, false));
+        }
+        assertEquals(1, tick(growth, queue, store, false));
+
+        // Offspring is right behind its parent and inherits its resistance
+        assertEquals(2, store.size());
+        assertSame(parent, queue.get(0));
+        Bacteria child = queue.get(1);
+        assertEquals(50, child.getX());
+        assertTrue(child.isExempt(AntibioticType.penicillin));
+        assertEquals(1, child.getIndex());
+    }
+
+    @Test
+    public void coloniesGrowInPlace() throws Exception {
+        BacteriaStore store = new BacteriaStore(100);
+        TargetQueue queue = new TargetQueue();
+        Bacteria colony = new Bacteria(BacteriaType.pneumonia, 1);
+        colony.setPopulation(10);
+        store.add(colony);
+        queue.add(colony);
+
+        BacteriaGrowth growth = new BacteriaGrowth();
+        long ticks = BacteriaType.getDoublingTime(BacteriaType.pneumonia) / TICK;
+        int born = 0;
+        for (int i = 0; i < ticks; i++) {
+            growth.beginTick(TICK, 1000, true);
+            growth.growQueue(queue);
+            born += growth.endTick(store);
+        }
+
+        assertEquals(10, born);
+        assertEquals(20, colony.getPopulation());
+        assertEquals(1, queue.size());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void storeStopsAtCap() throws Exception {
+        BacteriaStore store = new BacteriaStore(3);
+        assertTrue(store.add(new Bacteria(BacteriaType.staph, 1)));
+        Bacteria[] batch = {new Bacteria(BacteriaType.staph, 1), new Bacteria(BacteriaType.staph, 1),
+                new Bacteria(BacteriaType.staph, 1)};
+        assertEquals(2, store.addAll(batch, 3));
+        assertFalse(store.add(new Bacteria(BacteriaType.staph, 1)));
+
+        // Removing swaps the last one into the hole
+        assertTrue(store.remove(batch[0]));
+        assertSame(batch[1], store.get(1));
+        assertEquals(1, batch[1].getIndex());
+        assertEquals(2, store.size());
+    }
+
+    /**
+     * Grow from one bacteria to the cap, timing each tick.
+     * @return How long each tick took, in nanoseconds.
+     */
+    private long[] growToCap(int cap) {
+        BacteriaStore store = new BacteriaStore(cap);
+        TargetQueue queue = new TargetQueue();
+        Bacteria first = new Bacteria(BacteriaType.pneumonia, 1);
+        store.add(first);
+        queue.add(first);
+
+        BacteriaGrowth growth = new BacteriaGrowth();
+        long[] times = new long[MAX_TICKS];
+        int ticks = 0;
+        while (store.size() < cap && ticks < MAX_TICKS) {
+            long start = System.nanoTime();
+            tick(growth, queue, store, false);
+            times[ticks++] = System.nanoTime() - start;
+        }
+
+        assertEquals(cap, store.size());
+        assertEquals(cap, queue.size());
+        return Arrays.copyOf(times, ticks);
+    }
+
+    /**
+     * Grow from one bacteria to the cap and check the p99 tick fits the
+     * budget. The first run is only there to warm up the JIT. The budget can
+     * be stretched on a slow machine with -Pgrowth.budgetScale=2.
+     */
+    @Test
+    public void exponentialGrowthStaysInBudget() throws Exception {
+        double budgetScale = Double.parseDouble(System.getProperty("growth.budgetScale", "1"));
+        growToCap(100000);
+        long[] times = growToCap(100000);
+        Arrays.sort(times);
+        long p99 = times[(int) Math.ceil(times.length * 0.99) - 1];
+        assertTrue("p99 tick took " + p99 / 1000 + " us", p99 <= TICK_BUDGET * 1000000 * budgetScale);
+    }
+}
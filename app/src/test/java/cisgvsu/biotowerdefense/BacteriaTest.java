@@ -53,4 +53,59 @@ public class BacteriaTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void split() throws Exception {
+        Bacteria colony = new Bacteria(BacteriaType.staph, 2);
+        colony.setPopulation(10);
+        colony.setExempt(AntibioticType.penicillin);
+        colony.setX(40);
+
+        Bacteria members = colony.split(3);
+        assertEquals(7, colony.getPopulation());
+        assertEquals(3, members.getPopulation());
+        assertEquals(40, members.getX());
+        assertEquals(2, members.getHealth());
+        assertTrue(members.isExempt(AntibioticType.penicillin));
+    }
+
+    @Test
+    public void canMergeWith() throws Exception {
+        Bacteria a = new Bacteria(BacteriaType.staph, 1);
+        Bacteria b = new Bacteria(BacteriaType.staph, 1);
+        assertTrue(a.canMergeWith(b));
+
+        b.setExempt(AntibioticType.vancomycin);
+        assertFalse(a.canMergeWith(b));
+        assertFalse(a.canMergeWith(new Bacteria(BacteriaType.strep, 1)));
+
+        a.merge(new Bacteria(BacteriaType.staph, 1));
+        assertEquals(2, a.getPopulation());
+    }
+
+    @Test
+    public void neighboursMergeOnceTheyMeet() throws Exception {
+        Game game = new Game();
+        game.setSize(1920, 1080);
+        game.setSeed(1);
+        game.setAutoSpawn(false);
+        game.restartGame();
+
+        // Added apart, then allowed to form colonies
+        game.spawn(BacteriaType.staph, 5);
+        game.advance(100);
+        assertEquals(5, game.getAllBacteria().size());
+        for (int i = 0; i < 5; i++) {
+            game.getPills().add(new Pill(1900, 0, game.getAllBacteria().get(i), 2));
+        }
+        game.setColoniesEnabled(true);
+        game.advance(100);
+
+        assertEquals(1, game.getAllBacteria().size());
+        assertEquals(5, game.getAllBacteria().get(0).getPopulation());
+
+        // Pills at the ones that merged away are done
+        assertEquals(1, game.getPills().size());
+        assertSame(game.getAllBacteria().get(0), game.getPills().get(0).getTargetBacteria());
+    }
+
+}
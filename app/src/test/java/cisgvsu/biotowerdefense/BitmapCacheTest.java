@@ -0,0 +1,25 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for working out how much to sample images down by.
+ */
+public class BitmapCacheTest {
+
+    @Test
+    public void neverSmallerThanAsked() throws Exception {
+        // 4000x3000 down to a 1080p screen can only halve
+        assertEquals(2, BitmapCache.sampleSize(4000, 3000, 1920, 1080));
+        assertEquals(4, BitmapCache.sampleSize(4000, 3000, 960, 540));
+        assertEquals(1, BitmapCache.sampleSize(1920, 1080, 1920, 1080));
+        assertEquals(1, BitmapCache.sampleSize(1000, 1000, 1920, 1080));
+    }
+
+    @Test
+    public void ownSizeIsntSampled() throws Exception {
+        assertEquals(1, BitmapCache.sampleSize(4000, 3000, 0, 0));
+    }
+}
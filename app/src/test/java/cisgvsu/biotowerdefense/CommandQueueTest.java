@@ -0,0 +1,95 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for handing commands from several threads to one.
+ */
+public class CommandQueueTest {
+    /**
+     * Writes down which thread sent it.
+     */
+    private static class Record extends GameCommand {
+        final int sender;
+        final int number;
+        final List<Record> log;
+
+        Record(int sender, int number, List<Record> log) {
+            this.sender = sender;
+            this.number = number;
+            this.log = log;
+        }
+
+        @Override
+        public void run() {
+            log.add(this);
+        }
+    }
+
+    @Test
+    public void runsInOrderSubmitted() throws Exception {
+        List<Record> log = new ArrayList<>();
+        CommandQueue queue = new CommandQueue();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        queue.offer(new Record(0, 0, log));
+        queue.offer(new Record(0, 1, log));
+        assertFalse(queue.isEmpty());
+        queue.poll().run();
+        queue.offer(new Record(0, 2, log));
+        GameCommand c;
+        while ((c = queue.poll()) != null) {
+            c.run();
+        }
+        assertEquals(3, log.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, log.get(i).number);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void takesEverythingFromManyThreads() throws Exception {
+        final int senders = 4;
+        final int each = 20000;
+        final List<Record> log = new ArrayList<>();
+        final CommandQueue queue = new CommandQueue();
+        Thread[] threads = new Thread[senders];
+        for (int t = 0; t < senders; t++) {
+            final int sender = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < each; i++) {
+                        queue.offer(new Record(sender, i, log));
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        // Each sender's commands come out in the order it sent them
+        int[] next = new int[senders];
+        int taken = 0;
+        while (taken < senders * each) {
+            GameCommand c = queue.poll();
+            if (c == null) {
+                Thread.yield();
+                continue;
+            }
+            Record r = (Record) c;
+            assertEquals(next[r.sender]++, r.number);
+            taken++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,60 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for crediting score and money in batches.
+ */
+public class EconomyTest {
+
+    @Test
+    public void onlyShowsUpOnCommit() throws Exception {
+        Economy economy = new Economy();
+        economy.credit(Economy.KILLS, 15, 0);
+        economy.credit(Economy.KILLS, 15, 0);
+        assertEquals(0, economy.getScore());
+        assertEquals(0, economy.getCount(Economy.KILLS));
+
+        economy.commit();
+        assertEquals(30, economy.getScore());
+        assertEquals(30, economy.getScore(Economy.KILLS));
+        assertEquals(2, economy.getCount(Economy.KILLS));
+    }
+
+    @Test
+    public void keepsSourcesApart() throws Exception {
+        Economy economy = new Economy();
+        for (int i = 0; i < 10; i++) {
+            economy.credit(Economy.TIME, 100, 1);
+        }
+        economy.credit(Economy.PURCHASES, 0, -7);
+        economy.credit(Economy.KILLS, 15, 0);
+        economy.commit();
+        economy.commit();
+
+        assertEquals(1015, economy.getScore());
+        assertEquals(3, economy.getMoney());
+        assertEquals(1000, economy.getScore(Economy.TIME));
+        assertEquals(10, economy.getMoney(Economy.TIME));
+        assertEquals(-7, economy.getMoney(Economy.PURCHASES));
+        assertEquals(1, economy.getCount(Economy.PURCHASES));
+        assertEquals(10, economy.getCount(Economy.TIME));
+    }
+
+    @Test
+    public void resetForgetsEverything() throws Exception {
+        Economy economy = new Economy();
+        economy.credit(Economy.KILLS, 15, 0);
+        economy.commit();
+        economy.credit(Economy.TIME, 100, 1);
+        economy.reset();
+        economy.commit();
+
+        assertEquals(0, economy.getScore());
+        assertEquals(0, economy.getMoney());
+        assertEquals(0, economy.getCount(Economy.KILLS));
+        assertEquals(0, economy.getScore(Economy.TIME));
+    }
+}
@@ -0,0 +1,40 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for counting towers in the inventory.
+ */
+public class InventoryTest {
+
+    @Test
+    public void addAndTake() throws Exception {
+        Inventory inventory = new Inventory();
+        assertFalse(inventory.take(AntibioticType.penicillin));
+
+        inventory.add(AntibioticType.penicillin);
+        inventory.add(AntibioticType.penicillin);
+        inventory.add(AntibioticType.linezolid);
+        assertEquals(2, inventory.get(AntibioticType.penicillin));
+        assertEquals(0, inventory.get(AntibioticType.vancomycin));
+        assertEquals(2, inventory.getTypeCount());
+
+        assertTrue(inventory.take(AntibioticType.linezolid));
+        assertEquals(0, inventory.get(AntibioticType.linezolid));
+        assertEquals(1, inventory.getTypeCount());
+    }
+
+    @Test
+    public void copyDoesntChange() throws Exception {
+        Inventory inventory = new Inventory();
+        inventory.add(AntibioticType.vancomycin);
+        Inventory copy = inventory.copy();
+        assertEquals(inventory, copy);
+
+        inventory.add(AntibioticType.vancomycin);
+        assertEquals(1, copy.get(AntibioticType.vancomycin));
+        assertFalse(inventory.equals(copy));
+    }
+}
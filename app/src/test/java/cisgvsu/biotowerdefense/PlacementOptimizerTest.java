@@ -0,0 +1,101 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for searching for tower plans with headless games.
+ */
+public class PlacementOptimizerTest {
+
+    private static PlacementOptimizer small() {
+        PlacementOptimizer optimizer = new PlacementOptimizer(2);
+        optimizer.setHorizon(40000);
+        optimizer.setSeeds(3);
+        optimizer.setBeamWidth(2);
+        optimizer.setMaxSteps(3);
+        return optimizer;
+    }
+
+    /**
+     * Find a plan with a small optimizer, and stop its threads after.
+     */
+    private static PlacementOptimizer.Result optimizeSmall() {
+        PlacementOptimizer optimizer = small();
+        try {
+            return optimizer.optimize();
+        } finally {
+            optimizer.shutdown();
+        }
+    }
+
+    private static PlacementOptimizer.Plan opening(int slot) {
+        return new PlacementOptimizer.Plan(new PlacementOptimizer.Step(true, slot, AntibioticType.penicillin));
+    }
+
+    @Test
+    public void resetGamePlaysLikeANewOne() throws Exception {
+        PlacementOptimizer optimizer = small();
+        try {
+            PlacementOptimizer.Plan plan = opening(2).then(0, AntibioticType.vancomycin);
+
+            Game fresh = optimizer.newGame(null);
+            PlacementOptimizer.Outcome first = optimizer.play(fresh, plan, 5);
+
+            Game reused = optimizer.newGame(null);
+            optimizer.play(reused, opening(4), 9);
+            reused = optimizer.newGame(reused);
+            PlacementOptimizer.Outcome second = optimizer.play(reused, plan, 5);
+
+            assertEquals(first.survivedMillis, second.survivedMillis);
+            assertEquals(first.score, second.score);
+            assertEquals(fresh.getStateHash(), reused.getStateHash());
+        } finally {
+            optimizer.shutdown();
+        }
+    }
+
+    @Test
+    public void reusedOutcomesMatchPlayingThem() throws Exception {
+        PlacementOptimizer optimizer = small();
+        try {
+            List<PlacementOptimizer.Plan> openings = new ArrayList<>();
+            openings.add(opening(1));
+            optimizer.evaluate(openings);
+
+            List<PlacementOptimizer.Plan> children = new ArrayList<>();
+            for (AntibioticType type : AntibioticType.values()) {
+                children.add(opening(1).then(3, type));
+            }
+            int checked = 0;
+            for (PlacementOptimizer.Result result : optimizer.evaluate(children)) {
+                for (int seed = 0; seed < result.outcomes.length; seed++) {
+                    PlacementOptimizer.Outcome outcome = result.outcomes[seed];
+                    if (outcome.reused) {
+                        PlacementOptimizer.Outcome played = optimizer.play(optimizer.newGame(null), result.plan, seed);
+                        assertEquals(played.survivedMillis, outcome.survivedMillis);
+                        assertEquals(played.score, outcome.score);
+                        checked++;
+                    }
+                }
+            }
+            assertTrue(checked > 0);
+            assertEquals(checked, optimizer.getReused());
+        } finally {
+            optimizer.shutdown();
+        }
+    }
+
+    @Test
+    public void findsTheSamePlanEveryTime() throws Exception {
+        PlacementOptimizer.Result first = optimizeSmall();
+        PlacementOptimizer.Result second = optimizeSmall();
+        assertEquals(first.getPlan().toString(), second.getPlan().toString());
+        assertTrue(first.getPlan().getSteps()[0].place);
+        assertTrue(first.getMeanSurvivedMillis() > 0);
+    }
+}
@@ -0,0 +1,95 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays recorded sessions in test resources/replays and checks each one
+ * ends with the state hash it was recorded with, and that its p99 systems
+ * tick time fits its budget. To add a session, save {@link Game#getSession()}
+ * when a game ends and append its expect_hash, and a p99_budget of about
+ * twice the warm p99 it measures. The budgets can be stretched on a slow
+ * machine with -Preplay.budgetScale=2.
+ */
+public class ReplayTest {
+
+    private static File[] replays() throws Exception {
+        File dir = new File(ReplayTest.class.getResource("replays").toURI());
+        File[] files = dir.listFiles();
+        assertNotNull(files);
+        Arrays.sort(files);
+        return files;
+    }
+
+    @Test
+    public void replaysMatchTheirRecordings() throws Exception {
+        double budgetScale = Double.parseDouble(System.getProperty("replay.budgetScale", "1"));
+        List<String> failures = new ArrayList<>();
+
+        // Play everything once first, so the budgets measure compiled code
+        // and not the JIT warming up
+        for (File file : replays()) {
+            Scenario scenario = Scenario.load(file.getPath());
+            ScenarioRunner.run(scenario, scenario.createGame());
+        }
+
+        int count = 0;
+        for (File file : replays()) {
+            Scenario scenario = Scenario.load(file.getPath());
+            assertNotNull(file.getName() + " has no expect_hash", scenario.getExpectedHash());
+
+            ScenarioRunner.Report report = ScenarioRunner.run(scenario, scenario.createGame());
+            report.check(scenario, budgetScale);
+            for (String problem : report.getProblems()) {
+                failures.add(file.getName() + ": " + problem);
+            }
+            count++;
+        }
+        assertTrue(count > 0);
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    @Test
+    public void threadsDontChangeTheOutcome() throws Exception {
+        Scenario scenario = Scenario.load(new File(replays()[0].getParentFile(), "endless-swarm.scenario").getPath());
+        Game game = scenario.createGame();
+        game.setThreads(4);
+        ScenarioRunner.Report report = ScenarioRunner.run(scenario, game);
+        assertEquals(scenario.getExpectedHash().longValue(), report.getStateHash());
+    }
+
+    @Test
+    public void recordedSessionReplaysTheSame() throws Exception {
+        Game game = new Game();
+        game.setSize(1920, 1080);
+        game.advance(0);
+        game.advance(730);
+        game.restartGame();
+        game.advance(13);
+        game.takeOutOfInventoryAndAdd(AntibioticType.penicillin, 0);
+        for (int i = 0; i < 2000 && !game.isLost(); i++) {
+            if (i == 600) {
+                game.stopGame();
+            } else if (i == 650) {
+                game.restartGame();
+            } else if (i == 900) {
+                game.spawn(BacteriaType.strep, 5);
+            }
+            // Uneven steps, like frames on a real device
+            game.advance(7 + i % 11);
+        }
+
+        Scenario scenario = Scenario.read(new StringReader(game.getSession()));
+        assertEquals(game.getSeed(), scenario.getSeed());
+        ScenarioRunner.Report report = ScenarioRunner.run(scenario);
+        assertEquals(game.isLost(), report.isLost());
+        assertEquals(game.getStateHash(), report.getStateHash());
+    }
+}
@@ -0,0 +1,64 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for exposure building up and the once-a-tick resistance draw.
+ */
+public class ResistanceModelTest {
+    @Test
+    public void survivingCountsExtra() throws Exception {
+        ResistanceModel model = new ResistanceModel(new Random(1));
+        model.recordExposure(BacteriaType.staph, AntibioticType.penicillin, false);
+        model.recordExposure(BacteriaType.staph, AntibioticType.penicillin, true);
+        assertEquals(4, model.getExposure(BacteriaType.staph, AntibioticType.penicillin));
+        assertEquals(0, model.getExposure(BacteriaType.strep, AntibioticType.penicillin));
+    }
+
+    @Test
+    public void drawUsesUpExposure() throws Exception {
+        ResistanceModel model = new ResistanceModel(new Random(1));
+        assertEquals(0, model.draw(BacteriaType.staph, AntibioticType.penicillin));
+        for (int i = 0; i < 10; i++) {
+            model.recordExposure(BacteriaType.staph, AntibioticType.penicillin, false);
+        }
+        model.draw(BacteriaType.staph, AntibioticType.penicillin);
+        assertEquals(0, model.getExposure(BacteriaType.staph, AntibioticType.penicillin));
+    }
+
+    /**
+     * One draw over n shots should average out the same as rolling every shot.
+     */
+    @Test
+    public void binomialMatchesMean() throws Exception {
+        ResistanceModel model = new ResistanceModel(new Random(42));
+        long[] trials = {1, 30, 500, 100000};
+        double p = 0.03;
+        int draws = 20000;
+        for (long n : trials) {
+            long total = 0;
+            for (int i = 0; i < draws; i++) {
+                int k = model.binomial(n, p);
+                assertTrue(k >= 0 && k <= n);
+                total += k;
+            }
+            double mean = (double) total / draws;
+            double expected = n * p;
+            double tolerance = 4 * Math.sqrt(expected * (1 - p) / draws) + 1e-9;
+            assertEquals("n = " + n, expected, mean, tolerance);
+        }
+    }
+
+    @Test
+    public void binomialWithCertainSuccess() throws Exception {
+        ResistanceModel model = new ResistanceModel(new Random(7));
+        assertEquals(1, model.binomial(1, 1));
+        assertEquals(12, model.binomial(12, 1));
+        assertEquals(500, model.binomial(500, 1));
+        assertEquals(0, model.binomial(0, 1));
+    }
+}
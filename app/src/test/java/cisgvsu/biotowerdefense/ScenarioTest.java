@@ -0,0 +1,75 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for reading scenarios and playing them out without a screen.
+ */
+public class ScenarioTest {
+
+    private static Scenario read(String text) throws IOException {
+        return Scenario.read(new StringReader(text));
+    }
+
+    @Test
+    public void sortsEventsByTime() throws Exception {
+        Scenario scenario = read("name test # a comment\n"
+                + "duration 5000\n"
+                + "at 3000 pause\n"
+                + "at 1000 wave staph 3\n"
+                + "at 3000 resume\n");
+        assertEquals("test", scenario.getName());
+        assertEquals(5000, scenario.getDuration());
+        assertEquals(3, scenario.getEvents().size());
+        assertEquals("at 1000 wave staph 3", scenario.getEvents().get(0).toString());
+        assertEquals("at 3000 pause", scenario.getEvents().get(1).toString());
+        assertEquals("at 3000 resume", scenario.getEvents().get(2).toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownBacteria() throws Exception {
+        read("at 1000 wave flu 3\n");
+    }
+
+    @Test
+    public void endlessRunsTheWholeTime() throws Exception {
+        Scenario scenario = read("seed 1\n"
+                + "duration 20000\n"
+                + "endless on\n"
+                + "at 0 wave staph 20\n");
+        ScenarioRunner.Report report = ScenarioRunner.run(scenario);
+        assertFalse(report.isLost());
+        assertEquals(20000, report.gameMillis);
+        assertEquals(report.getSystemTicks(), report.tickNanos.length);
+        assertTrue(report.getSystemTicks() >= 999);
+        assertTrue(report.escaped > 0);
+        assertTrue(report.toJson().contains("\"escaped\": " + report.escaped));
+    }
+
+    @Test
+    public void sameSeedPlaysOutTheSame() throws Exception {
+        String text = "seed 5\nduration 15000\ntower 0 penicillin\nat 2000 wave strep 5\n";
+        ScenarioRunner.Report first = ScenarioRunner.run(read(text));
+        ScenarioRunner.Report second = ScenarioRunner.run(read(text));
+        assertEquals(first.lostAtMillis, second.lostAtMillis);
+        assertEquals(first.score, second.score);
+        assertEquals(first.kills, second.kills);
+    }
+
+    @Test
+    public void checksTickTimeAgainstBudget() throws Exception {
+        Scenario scenario = read("seed 2\nduration 5000\nendless on\nat 0 wave staph 50\np99_budget 0\n");
+        ScenarioRunner.Report report = ScenarioRunner.run(scenario);
+        assertTrue(report.getP99TickNanos() > 0);
+        assertEquals(1, report.getProblems().size());
+        assertTrue(report.getProblems().get(0).startsWith("p99 tick took"));
+
+        report.check(read("p99_budget 1000000\n"), 1);
+        assertTrue(report.getProblems().isEmpty());
+    }
+}
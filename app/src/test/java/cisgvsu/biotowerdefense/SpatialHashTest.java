@@ -0,0 +1,77 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for neighbour lookups and spreading resistance between neighbours.
+ */
+public class SpatialHashTest {
+
+    private Bacteria at(BacteriaStore store, int x, int y) {
+        Bacteria b = new Bacteria(BacteriaType.staph, 1);
+        b.setX(x);
+        b.setY(y);
+        store.add(b);
+        return b;
+    }
+
+    @Test
+    public void findsOnlyNeighboursInRadius() throws Exception {
+        BacteriaStore store = new BacteriaStore(100);
+        at(store, 100, 100);
+        at(store, 120, 110);
+        at(store, -30, 100);
+        at(store, 400, 400);
+
+        SpatialHash grid = new SpatialHash(40);
+        grid.update(store);
+        int[] out = new int[10];
+        assertEquals(2, grid.query(store, 100, 100, 40, out));
+        assertEquals(1, grid.query(store, -10, 100, 40, out));
+        assertEquals(2, out[0]);
+    }
+
+    @Test
+    public void followsMovesAndRemovals() throws Exception {
+        BacteriaStore store = new BacteriaStore(100);
+        Bacteria a = at(store, 100, 100);
+        Bacteria b = at(store, 500, 500);
+        SpatialHash grid = new SpatialHash(40);
+        grid.update(store);
+
+        b.setX(110);
+        b.setY(100);
+        grid.update(store);
+        int[] out = new int[10];
+        assertEquals(2, grid.query(store, 100, 100, 40, out));
+
+        store.remove(a);
+        grid.update(store);
+        assertEquals(1, grid.query(store, 100, 100, 40, out));
+        assertSame(b, store.get(out[0]));
+        assertEquals(0, grid.query(store, 500, 500, 40, out));
+    }
+
+    @Test
+    public void genesOnlySpreadToNeighbours() throws Exception {
+        BacteriaStore store = new BacteriaStore(2000);
+        Bacteria donor = at(store, 0, 0);
+        donor.addResistanceGene(AntibioticType.penicillin);
+        for (int i = 0; i < 1000; i++) {
+            at(store, 5, 5);
+        }
+        Bacteria far = at(store, 1000, 0);
+
+        GeneTransfer transfer = new GeneTransfer(new Random(1));
+        int n = transfer.tick(store);
+        assertTrue(n > 0);
+        for (int i = 0; i < n; i++) {
+            assertNotSame(far, transfer.getRecipient(i));
+            assertEquals(1 << AntibioticType.penicillin.ordinal(), transfer.getGenes(i));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for status effects stacking, running out and following bacteria
+ * around the store.
+ */
+public class StatusEffectsTest {
+    private BacteriaStore store(StatusEffects effects, int n) {
+        BacteriaStore store = new BacteriaStore(100);
+        store.setListener(effects);
+        for (int i = 0; i < n; i++) {
+            store.add(new Bacteria(BacteriaType.staph, 5));
+        }
+        return store;
+    }
+
+    @Test
+    public void slowsAndShieldsDontStack() throws Exception {
+        StatusEffects effects = new StatusEffects();
+        store(effects, 1);
+        effects.apply(0, StatusEffects.SLOW, 30, 1000);
+        effects.apply(0, StatusEffects.SLOW, 50, 500);
+        effects.apply(0, StatusEffects.SLOW, 20, 2000);
+        assertEquals(1, effects.size());
+        assertEquals(50, effects.getSlow(0));
+
+        effects.apply(0, StatusEffects.SHIELD, 2, 1000);
+        effects.apply(0, StatusEffects.SHIELD, 1, 1000);
+        assertEquals(2, effects.size());
+        assertEquals(1, effects.absorb(0, 3));
+        assertFalse(effects.has(0, StatusEffects.SHIELD));
+    }
+
+    @Test
+    public void damageOverTimeStacksUpToCap() throws Exception {
+        StatusEffects effects = new StatusEffects();
+        BacteriaStore store = store(effects, 1);
+        for (int i = 0; i < StatusEffects.MAX_DOT_STACKS + 2; i++) {
+            effects.apply(0, StatusEffects.DAMAGE_OVER_TIME, 1, 3000);
+        }
+        assertEquals(StatusEffects.MAX_DOT_STACKS, effects.size());
+
+        assertEquals(0, effects.tick(900, store));
+        assertEquals(StatusEffects.MAX_DOT_STACKS, effects.tick(100, store));
+        assertSame(store.get(0), effects.getDamaged(0));
+        assertEquals(1, effects.getDamage(0));
+    }
+
+    @Test
+    public void expiredEffectsAreSwapRemoved() throws Exception {
+        StatusEffects effects = new StatusEffects();
+        BacteriaStore store = store(effects, 3);
+        effects.apply(0, StatusEffects.SLOW, 50, 100);
+        effects.apply(1, StatusEffects.SLOW, 40, 500);
+        effects.apply(2, StatusEffects.SLOW, 30, 100);
+        effects.apply(1, StatusEffects.SHIELD, 1, 100);
+
+        effects.tick(100, store);
+        assertEquals(1, effects.size());
+        assertEquals(0, effects.getSlow(0));
+        assertEquals(40, effects.getSlow(1));
+        assertEquals(0, effects.getSlow(2));
+        assertTrue(effects.has(1, StatusEffects.SLOW));
+        assertFalse(effects.has(1, StatusEffects.SHIELD));
+
+        effects.tick(400, store);
+        assertEquals(0, effects.size());
+        assertEquals(0, effects.getSlow(1));
+    }
+
+    @Test
+    public void effectsFollowBacteriaInStore() throws Exception {
+        StatusEffects effects = new StatusEffects();
+        BacteriaStore store = store(effects, 3);
+        Bacteria dead = store.get(0);
+        Bacteria last = store.get(2);
+        effects.apply(0, StatusEffects.SLOW, 50, 1000);
+        effects.apply(2, StatusEffects.SLOW, 25, 1000);
+        effects.apply(2, StatusEffects.DAMAGE_OVER_TIME, 1, 1000);
+
+        // The last one moves into the dead one's spot and keeps its own effects
+        store.remove(dead);
+        assertSame(last, store.get(0));
+        assertEquals(2, effects.size());
+        assertEquals(25, effects.getSlow(0));
+        assertTrue(effects.has(0, StatusEffects.DAMAGE_OVER_TIME));
+        assertFalse(effects.has(2, StatusEffects.SLOW));
+
+        assertEquals(1, effects.tick(1000, store));
+        assertSame(last, effects.getDamaged(0));
+    }
+}
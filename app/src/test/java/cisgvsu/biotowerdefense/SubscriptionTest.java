@@ -0,0 +1,63 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.Observable;
+import java.util.Observer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for subscribing to the game's events.
+ */
+public class SubscriptionTest {
+
+    /** Something to subscribe to that can send events on demand. */
+    private static class Events extends Observable {
+        void send(Object arg) {
+            setChanged();
+            notifyObservers(arg);
+        }
+    }
+
+    /** Counts the events it gets. */
+    private static class Counter implements Observer {
+        int count;
+
+        @Override
+        public void update(Observable o, Object arg) {
+            count++;
+        }
+    }
+
+    @Test
+    public void stopsAfterCancel() throws Exception {
+        Events events = new Events();
+        Counter counter = new Counter();
+        Subscription subscription = new Subscription(events, counter);
+
+        events.send("first");
+        assertEquals(1, counter.count);
+        assertTrue(subscription.isActive());
+
+        subscription.cancel();
+        events.send("second");
+        assertEquals(1, counter.count);
+        assertFalse(subscription.isActive());
+        assertEquals(0, events.countObservers());
+    }
+
+    @Test
+    public void countsLiveSubscribers() throws Exception {
+        Game game = new Game();
+        Counter first = new Counter();
+        Counter second = new Counter();
+        Subscription a = game.subscribe(first);
+        game.subscribe(second);
+        assertEquals(2, game.getSubscriberCount());
+
+        a.cancel();
+        assertEquals(1, game.getSubscriberCount());
+        assertEquals(1, game.countObservers());
+    }
+}
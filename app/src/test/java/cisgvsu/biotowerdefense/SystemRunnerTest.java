@@ -0,0 +1,62 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for systems running in order and being measured.
+ */
+public class SystemRunnerTest {
+    /**
+     * Writes its name down every time it runs.
+     */
+    private static class Named implements GameSystem {
+        final String name;
+        final List<String> log;
+
+        Named(String name, List<String> log) {
+            this.name = name;
+            this.log = log;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void update(long millis) {
+            log.add(name + millis);
+        }
+    }
+
+    @Test
+    public void runsInOrderAdded() throws Exception {
+        List<String> log = new ArrayList<>();
+        SystemRunner runner = new SystemRunner();
+        runner.add(new Named("movement", log));
+        runner.add(new Named("targeting", log));
+        runner.add(new Named("damage", log));
+
+        runner.update(20);
+        runner.update(20);
+        assertEquals(6, log.size());
+        assertEquals("movement20", log.get(0));
+        assertEquals("targeting20", log.get(1));
+        assertEquals("damage20", log.get(2));
+        assertEquals("movement20", log.get(3));
+
+        assertEquals(3, runner.size());
+        assertEquals("targeting", runner.getName(1));
+        assertEquals(2, runner.getTicks());
+        assertTrue(runner.getTotalNanos(0) >= runner.getLastNanos(0));
+
+        runner.resetTimings();
+        assertEquals(0, runner.getTicks());
+        assertEquals(0, runner.getTotalNanos(2));
+    }
+}
@@ -0,0 +1,94 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the ring buffer the towers line bacteria up in.
+ */
+public class TargetQueueTest {
+
+    private Bacteria[] make(int n) {
+        Bacteria[] bacteria = new Bacteria[n];
+        for (int i = 0; i < n; i++) {
+            bacteria[i] = new Bacteria(BacteriaType.staph, 1);
+        }
+        return bacteria;
+    }
+
+    @Test
+    public void keepsOrderAcrossWrapAndGrowth() throws Exception {
+        Bacteria[] b = make(40);
+        TargetQueue queue = new TargetQueue(4);
+        // Wrap the head around before growing
+        queue.add(b[0]);
+        queue.add(b[1]);
+        assertSame(b[0], queue.poll());
+        for (int i = 2; i < 40; i++) {
+            queue.add(b[i]);
+        }
+        queue.addFirst(b[0]);
+
+        assertEquals(40, queue.size());
+        assertSame(b[0], queue.peek());
+        assertSame(b[39], queue.peekLast());
+        assertSame(b[1], queue.get(1));
+        assertSame(b[19], queue.get(19));
+    }
+
+    @Test
+    public void removesFromTheMiddle() throws Exception {
+        Bacteria[] b = make(6);
+        TargetQueue queue = new TargetQueue();
+        for (Bacteria x : b) {
+            queue.add(x);
+        }
+        assertTrue(queue.remove(b[1]));
+        assertTrue(queue.remove(b[4]));
+        assertFalse(queue.remove(b[4]));
+        assertEquals(4, queue.size());
+        assertSame(b[0], queue.get(0));
+        assertSame(b[2], queue.get(1));
+        assertSame(b[3], queue.get(2));
+        assertSame(b[5], queue.get(3));
+    }
+
+    @Test
+    public void movesRunsInOrder() throws Exception {
+        Bacteria[] b = make(30);
+        TargetQueue from = new TargetQueue(16);
+        TargetQueue to = new TargetQueue(16);
+        // Both buffers wrapped around
+        for (int i = 0; i < 10; i++) {
+            from.add(b[0]);
+            from.poll();
+            to.add(b[0]);
+            to.poll();
+        }
+        for (int i = 0; i < 12; i++) {
+            from.add(b[i]);
+        }
+        for (int i = 12; i < 20; i++) {
+            to.add(b[i]);
+        }
+
+        assertEquals(5, from.moveTo(to, 5));
+        assertEquals(7, from.size());
+        assertEquals(13, to.size());
+        for (int i = 0; i < 8; i++) {
+            assertSame(b[12 + i], to.get(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertSame(b[i], to.get(8 + i));
+        }
+        assertSame(b[5], from.peek());
+
+        // Asking for more than there are just moves the rest
+        assertEquals(7, from.moveTo(to, 100));
+        assertTrue(from.isEmpty());
+        assertEquals(20, to.size());
+        assertSame(b[11], to.peekLast());
+        assertNull(from.poll());
+    }
+}
@@ -0,0 +1,111 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the timing wheel running actions on the right tick.
+ */
+public class TimingWheelTest {
+    /**
+     * Remembers every tick it ran on, and repeats if it has a period.
+     */
+    private static class Recorder extends TimedAction {
+        final List<Long> ran = new ArrayList<>();
+        final long period;
+
+        Recorder(long period) {
+            this.period = period;
+        }
+
+        @Override
+        public void run(TimingWheel wheel) {
+            ran.add(wheel.getTime());
+            if (period > 0) {
+                wheel.schedule(this, period);
+            }
+        }
+    }
+
+    @Test
+    public void runsOnDeadlineAtEveryLevel() throws Exception {
+        TimingWheel wheel = new TimingWheel();
+        wheel.advance(37);
+        long[] delays = {1, 5, 63, 64, 65, 4095, 4096, 4097, 300000, 20000000};
+        Recorder[] actions = new Recorder[delays.length];
+        for (int i = 0; i < delays.length; i++) {
+            actions[i] = new Recorder(0);
+            wheel.schedule(actions[i], delays[i]);
+        }
+        assertEquals(delays.length, wheel.size());
+
+        wheel.advance(20000000);
+        for (int i = 0; i < delays.length; i++) {
+            assertEquals("delay " + delays[i], 1, actions[i].ran.size());
+            assertEquals("delay " + delays[i], 37 + delays[i], (long) actions[i].ran.get(0));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void repeatsAtItsOwnRate() throws Exception {
+        TimingWheel wheel = new TimingWheel();
+        Recorder fast = new Recorder(80);
+        Recorder slow = new Recorder(133);
+        wheel.schedule(fast, 80);
+        wheel.schedule(slow, 133);
+
+        wheel.advance(8000);
+        assertEquals(100, fast.ran.size());
+        assertEquals(60, slow.ran.size());
+        for (int i = 0; i < slow.ran.size(); i++) {
+            assertEquals(133L * (i + 1), (long) slow.ran.get(i));
+        }
+    }
+
+    @Test
+    public void cancelAndReschedule() throws Exception {
+        TimingWheel wheel = new TimingWheel();
+        Recorder cancelled = new Recorder(0);
+        Recorder moved = new Recorder(0);
+        wheel.schedule(cancelled, 100);
+        wheel.schedule(moved, 100);
+        wheel.advance(50);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        wheel.schedule(moved, 200);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(500);
+        assertTrue(cancelled.ran.isEmpty());
+        assertEquals(250L, (long) moved.ran.get(0));
+        assertFalse(moved.isScheduled());
+    }
+
+    /**
+     * Hundreds of towers with different cadences on one wheel.
+     */
+    @Test
+    public void manyCadences() throws Exception {
+        TimingWheel wheel = new TimingWheel();
+        Recorder[] towers = new Recorder[500];
+        for (int i = 0; i < towers.length; i++) {
+            towers[i] = new Recorder(50 + i);
+            wheel.schedule(towers[i], 50 + i);
+        }
+        long ticks = 100000;
+        int ran = wheel.advance(ticks);
+
+        int expected = 0;
+        for (int i = 0; i < towers.length; i++) {
+            assertEquals(ticks / (50 + i), towers[i].ran.size());
+            expected += towers[i].ran.size();
+        }
+        assertEquals(expected, ran);
+    }
+}
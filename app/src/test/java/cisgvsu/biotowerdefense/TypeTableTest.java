@@ -0,0 +1,69 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for reading type stats from CSV.
+ */
+public class TypeTableTest {
+
+    private static TypeTable read(String csv) throws Exception {
+        return new TypeTable(new ByteArrayInputStream(csv.getBytes("UTF-8")), BacteriaType.values());
+    }
+
+    @Test
+    public void linesRowsUpByOrdinal() throws Exception {
+        TypeTable table = read("# comment\n"
+                + "name, speed, label\n"
+                + "\n"
+                + "strep, 3, Strep\n"
+                + "STAPH, 1, Staph\n"
+                + "pneumonia, 2, Pneumonia\n");
+        int[] speed = table.ints("speed");
+        assertEquals(1, speed[BacteriaType.staph.ordinal()]);
+        assertEquals(2, speed[BacteriaType.pneumonia.ordinal()]);
+        assertEquals(3, speed[BacteriaType.strep.ordinal()]);
+        assertEquals("Strep", table.strings("label")[BacteriaType.strep.ordinal()]);
+        assertEquals(BacteriaType.staph.ordinal(), table.indexOf("Staph"));
+        assertEquals(-1, table.indexOf("newbug"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rowsHaveToBeTypes() throws Exception {
+        read("name,speed\nstaph,1\nnewbug,9\npneumonia,2\nstrep,3\n");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void resourceNamesHaveToExist() throws Exception {
+        read("name,image\nstaph,bacteria_staph\npneumonia,bacteria_pneumonia\nstrep,bacteria_strpe\n")
+                .resources("image", R.drawable.class);
+    }
+
+    @Test
+    public void resourceNamesLookUpIds() throws Exception {
+        int[] images = read("name,image\nstaph,bacteria_staph\npneumonia,bacteria_pneumonia\nstrep,bacteria_strep\n")
+                .resources("image", R.drawable.class);
+        assertEquals(R.drawable.bacteria_strep, images[BacteriaType.strep.ordinal()]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void everyTypeNeedsARow() throws Exception {
+        read("name,speed\nstaph,1\nstrep,3\n");
+    }
+
+    @Test
+    public void bundledTablesLoad() throws Exception {
+        assertEquals(1, AntibioticType.getPower(AntibioticType.penicillin));
+        assertEquals(35, AntibioticType.getCost(AntibioticType.linezolid));
+        assertEquals(StatusEffects.SLOW, AntibioticType.getEffect(AntibioticType.linezolid));
+        assertEquals(-1, AntibioticType.getEffect(AntibioticType.penicillin));
+        assertEquals(AntibioticType.vancomycin, AntibioticType.stringToEnum("VANCOMYCIN"));
+        assertNull(AntibioticType.stringToEnum("aspirin"));
+        assertEquals("Klebsiella pneumoniae", BacteriaType.getLongName(BacteriaType.pneumonia));
+        assertEquals(1, BacteriaType.getBiofilm(BacteriaType.pneumonia));
+    }
+}
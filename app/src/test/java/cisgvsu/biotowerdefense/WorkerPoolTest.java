@@ -0,0 +1,126 @@
+package cisgvsu.biotowerdefense;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for splitting work across threads and getting the same answer back.
+ */
+public class WorkerPoolTest {
+
+    @Test
+    public void coversEveryIndexOnceInChunkOrder() throws Exception {
+        WorkerPool pool = new WorkerPool(4);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(10000);
+        final int[] starts = new int[WorkerPool.MAX_CHUNKS];
+        int chunks = pool.forRange(10000, 100, new WorkerPool.RangeTask() {
+            @Override
+            public void run(int chunk, int from, int to) {
+                starts[chunk] = from;
+                for (int i = from; i < to; i++) {
+                    seen.incrementAndGet(i);
+                }
+            }
+        });
+        assertTrue(chunks > 1);
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i));
+        }
+        for (int c = 1; c < chunks; c++) {
+            assertTrue(starts[c] > starts[c - 1]);
+        }
+
+        // Small ranges aren't worth splitting
+        assertEquals(1, pool.forRange(50, 100, new WorkerPool.RangeTask() {
+            @Override
+            public void run(int chunk, int from, int to) {
+            }
+        }));
+        pool.shutdown();
+    }
+
+    @Test
+    public void rangesFromDifferentThreadsTakeTurns() throws Exception {
+        final WorkerPool pool = new WorkerPool(4);
+        final AtomicIntegerArray active = new AtomicIntegerArray(2);
+        final AtomicInteger overlaps = new AtomicInteger();
+        final AtomicIntegerArray covered = new AtomicIntegerArray(2);
+
+        Thread[] callers = new Thread[2];
+        for (int c = 0; c < callers.length; c++) {
+            final int caller = c;
+            callers[c] = new Thread() {
+                public void run() {
+                    WorkerPool.RangeTask task = new WorkerPool.RangeTask() {
+                        @Override
+                        public void run(int chunk, int from, int to) {
+                            active.incrementAndGet(caller);
+                            if (active.get(1 - caller) > 0) {
+                                overlaps.incrementAndGet();
+                            }
+                            for (int i = from; i < to; i++) {
+                                covered.incrementAndGet(caller);
+                            }
+                            active.decrementAndGet(caller);
+                        }
+                    };
+                    for (int i = 0; i < 200; i++) {
+                        pool.forRange(10000, 100, task);
+                    }
+                }
+            };
+            callers[c].start();
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        pool.shutdown();
+
+        assertEquals(0, overlaps.get());
+        assertEquals(200 * 10000, covered.get(0));
+        assertEquals(200 * 10000, covered.get(1));
+    }
+
+    @Test
+    public void genesSpreadTheSameOnAnyThreadCount() throws Exception {
+        assertArrayEquals(spreadGenes(new WorkerPool(1)), spreadGenes(new WorkerPool(4)));
+    }
+
+    /**
+     * Spread genes through a big seeded swarm and get where they ended up.
+     */
+    private int[] spreadGenes(WorkerPool pool) {
+        Random layout = new Random(7);
+        BacteriaStore store = new BacteriaStore(10000);
+        for (int i = 0; i < 10000; i++) {
+            Bacteria b = new Bacteria(BacteriaType.staph, 1);
+            b.setX(layout.nextInt(2000));
+            b.setY(layout.nextInt(2000));
+            if (i % 10 == 0) {
+                b.setResistanceGenes(1);
+            }
+            store.add(b);
+        }
+
+        GeneTransfer transfer = new GeneTransfer(new Random(3));
+        for (int tick = 0; tick < 5; tick++) {
+            int n = transfer.tick(store, pool);
+            for (int i = 0; i < n; i++) {
+                Bacteria r = transfer.getRecipient(i);
+                r.setResistanceGenes(r.getResistanceGenes() | transfer.getGenes(i));
+            }
+        }
+        pool.shutdown();
+
+        int[] genes = new int[store.size()];
+        for (int i = 0; i < genes.length; i++) {
+            genes[i] = store.get(i).getResistanceGenes();
+        }
+        return genes;
+    }
+}